@@ -0,0 +1,58 @@
+package com.github.ji4597056;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * benchmark input
+ *
+ * @author Jeffrey
+ * @since 2018/03/15 9:40
+ */
+final class BenchmarkNodes {
+
+    private BenchmarkNodes() {
+    }
+
+    /**
+     * real nodes,eg:"10.0.0.1","10.0.0.2"...
+     *
+     * @param size size
+     * @return real nodes
+     */
+    static List<String> realNodes(int size) {
+        List<String> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            nodes.add(realNode(i));
+        }
+        return nodes;
+    }
+
+    /**
+     * real node of index
+     *
+     * @param index index
+     * @return real node
+     */
+    static String realNode(int index) {
+        return "10." + (index >>> 16 & 0xff) + "." + (index >>> 8 & 0xff) + "." + (index & 0xff);
+    }
+
+    /**
+     * random ip-like keys,same as ConsistentHashingWithVirtualNodeTest
+     *
+     * @param size size
+     * @return keys
+     */
+    static String[] keys(int size) {
+        Random random = new Random(0);
+        int max = 256;
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt(max) + "." + random.nextInt(max) + "." + random.nextInt(max)
+                    + "." + random.nextInt(max);
+        }
+        return keys;
+    }
+}
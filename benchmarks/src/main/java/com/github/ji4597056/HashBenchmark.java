@@ -0,0 +1,127 @@
+package com.github.ji4597056;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * hash function benchmark,compares fnv with the self-contained murmur/xxhash functions and guava's
+ * hasher based murmur3_32
+ *
+ * @author Jeffrey
+ * @since 2018/03/14 10:30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+
+    private static final int KEYS_MASK = 1023;
+
+    /**
+     * key length in chars
+     */
+    @Param({"8", "32", "128"})
+    private int keyLength;
+
+    private String[] keys;
+
+    private byte[][] bytes;
+
+    private int index;
+
+    private final Hash fnvHash = new FnvHash();
+
+    private final Hash murmurHash = new MurmurHash();
+
+    private final Hash murmur128Hash = new Murmur128Hash();
+
+    private final Hash xxHash = new XxHash();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        keys = new String[KEYS_MASK + 1];
+        bytes = new byte[KEYS_MASK + 1][];
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder builder = new StringBuilder(keyLength);
+            for (int j = 0; j < keyLength; j++) {
+                builder.append((char) ('0' + random.nextInt(75)));
+            }
+            keys[i] = builder.toString();
+            bytes[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private String nextKey() {
+        return keys[index++ & KEYS_MASK];
+    }
+
+    private byte[] nextBytes() {
+        return bytes[index++ & KEYS_MASK];
+    }
+
+    @Benchmark
+    public int fnvString() {
+        return fnvHash.getHash(nextKey());
+    }
+
+    @Benchmark
+    public int guavaMurmur3String() {
+        return Hashing.murmur3_32().hashString(nextKey(), Charsets.UTF_8).asInt();
+    }
+
+    @Benchmark
+    public int murmurString() {
+        return murmurHash.getHash(nextKey());
+    }
+
+    @Benchmark
+    public int murmur128String() {
+        return murmur128Hash.getHash(nextKey());
+    }
+
+    @Benchmark
+    public int xxHashString() {
+        return xxHash.getHash(nextKey());
+    }
+
+    @Benchmark
+    public int fnvBytes() {
+        byte[] key = nextBytes();
+        return fnvHash.getHash(key, 0, key.length);
+    }
+
+    @Benchmark
+    public int guavaMurmur3Bytes() {
+        return Hashing.murmur3_32().hashBytes(nextBytes()).asInt();
+    }
+
+    @Benchmark
+    public int murmurBytes() {
+        byte[] key = nextBytes();
+        return murmurHash.getHash(key, 0, key.length);
+    }
+
+    @Benchmark
+    public int xxHashBytes() {
+        byte[] key = nextBytes();
+        return xxHash.getHash(key, 0, key.length);
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ring lookup benchmark,keys are generated before measurement so only hash and lookup are timed
+ *
+ * @author Jeffrey
+ * @since 2018/03/15 9:40
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingLookupBenchmark {
+
+    private static final int KEYS_MASK = (1 << 16) - 1;
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * virtual nodes numbers of every real node
+     */
+    @Param({"1", "10", "100", "1000"})
+    private int virtualNodes;
+
+    /**
+     * real nodes numbers
+     */
+    @Param({"5", "50", "500", "5000"})
+    private int realNodes;
+
+    private ConsistentHashingWithVirtualNode consistentHashing;
+
+    private String[] keys;
+
+    private String[] batch;
+
+    @Setup
+    public void setUp() {
+        consistentHashing = new ConsistentHashingWithVirtualNode(
+                BenchmarkNodes.realNodes(realNodes), virtualNodes);
+        keys = BenchmarkNodes.keys(KEYS_MASK + 1);
+        batch = Arrays.copyOf(keys, BATCH_SIZE);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next() {
+            return index++ & KEYS_MASK;
+        }
+    }
+
+    @Benchmark
+    public String getServer(Cursor cursor) {
+        return consistentHashing.getServer(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public String getServerLong(Cursor cursor) {
+        return consistentHashing.getServer((long) cursor.next());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Map<String, List<String>> getServers() {
+        return consistentHashing.getServers(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void getServerLoop(Blackhole blackhole) {
+        for (String key : batch) {
+            blackhole.consume(consistentHashing.getServer(key));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.ji4597056;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ring rebalance benchmark,latency of adding or removing one real node
+ *
+ * @author Jeffrey
+ * @since 2018/03/15 11:02
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingMembershipBenchmark {
+
+    private static final String NODE = "192.168.0.1";
+
+    /**
+     * virtual nodes numbers of every real node
+     */
+    @Param({"10", "100", "1000"})
+    private int virtualNodes;
+
+    /**
+     * real nodes numbers
+     */
+    @Param({"5", "50", "500"})
+    private int realNodes;
+
+    private ConsistentHashingWithVirtualNode consistentHashing;
+
+    @Setup
+    public void setUp() {
+        consistentHashing = new ConsistentHashingWithVirtualNode(
+                BenchmarkNodes.realNodes(realNodes), virtualNodes);
+    }
+
+    /**
+     * ring without NODE
+     */
+    @State(Scope.Thread)
+    public static class Absent {
+
+        @TearDown(Level.Invocation)
+        public void tearDown(RingMembershipBenchmark benchmark) {
+            benchmark.consistentHashing.removeServerNode(NODE);
+        }
+    }
+
+    /**
+     * ring with NODE
+     */
+    @State(Scope.Thread)
+    public static class Present {
+
+        @Setup(Level.Invocation)
+        public void setUp(RingMembershipBenchmark benchmark) {
+            benchmark.consistentHashing.addServerNode(NODE);
+        }
+    }
+
+    @Benchmark
+    public void addServerNode(Absent absent) {
+        consistentHashing.addServerNode(NODE);
+    }
+
+    @Benchmark
+    public void removeServerNode(Present present) {
+        consistentHashing.removeServerNode(NODE);
+    }
+}
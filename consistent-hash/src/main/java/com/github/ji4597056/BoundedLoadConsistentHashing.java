@@ -0,0 +1,312 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * consistent hashing with bounded loads(Mirrokni et al.)
+ * <p>
+ * every real node has a capacity of (1+ε)·average load(scaled by its weight),a node landing on a
+ * full real node walks clockwise to the next real node with spare capacity.loads are lock-free
+ * counters,call {@link #acquire(String)} when a node starts using a server and
+ * {@link #release(Lease)} with the returned lease when it is done
+ *
+ * @author Jeffrey
+ * @since 2018/03/21 15:30
+ */
+public class BoundedLoadConsistentHashing implements Router {
+
+    /**
+     * value of a load counter whose real node was removed from the ring,acquires on it fail and
+     * releases on it are ignored
+     */
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    /**
+     * ring,membership changes go through it
+     */
+    private final ConsistentHashingWithVirtualNode ring;
+
+    /**
+     * load factor over average,ε
+     */
+    private final double epsilon;
+
+    /**
+     * load of every real node of the latest resolved snapshot,key:node/value:load
+     */
+    private final ConcurrentMap<String, AtomicLong> loads = new ConcurrentHashMap<>();
+
+    /**
+     * sum of loads of real nodes in the latest resolved snapshot
+     */
+    private final AtomicLong totalLoad = new AtomicLong();
+
+    /**
+     * loads of the current ring snapshot,resolved once per snapshot
+     */
+    private volatile SnapshotLoads snapshotLoads = new SnapshotLoads(RingSnapshot.EMPTY,
+            new AtomicLong[0]);
+
+    public BoundedLoadConsistentHashing(ConsistentHashingWithVirtualNode ring, double epsilon) {
+        if (epsilon <= 0) {
+            throw new IllegalArgumentException("Epsilon must be positive!");
+        }
+        this.ring = ring;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * get server with spare capacity from node,without acquiring it
+     *
+     * @param node node
+     * @return real node
+     */
+    @Override
+    public String getServer(String node) {
+        for (; ; ) {
+            SnapshotLoads current = snapshotLoads();
+            int owner = find(current, node, false);
+            if (owner >= 0) {
+                return current.ring.nodes[owner];
+            }
+        }
+    }
+
+    /**
+     * acquire one unit of load on the server with spare capacity
+     *
+     * @param node node
+     * @return lease of the acquired load,release it with {@link #release(Lease)}
+     */
+    public Lease acquire(String node) {
+        for (; ; ) {
+            SnapshotLoads current = snapshotLoads();
+            int owner = find(current, node, true);
+            if (owner >= 0) {
+                return new Lease(current.ring.nodes[owner], current.loads[owner]);
+            }
+        }
+    }
+
+    /**
+     * release one unit of load on the counter it was acquired from,load of a server removed from
+     * the ring was dropped with it and is ignored,even if the server has been added again since
+     *
+     * @param lease lease returned by {@link #acquire(String)}
+     */
+    public void release(Lease lease) {
+        AtomicLong load = lease.load;
+        for (long current; (current = load.get()) > 0; ) {
+            if (load.compareAndSet(current, current - 1)) {
+                totalLoad.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * get load of server
+     *
+     * @param server real node
+     * @return load
+     */
+    public long getLoad(String server) {
+        AtomicLong load = loads.get(server);
+        return load == null ? 0 : Math.max(load.get(), 0);
+    }
+
+    /**
+     * get loads of real server nodes
+     *
+     * @return loads,key:node/value:load
+     */
+    public Map<String, Long> getLoads() {
+        Map<String, Long> result = new HashMap<>();
+        getRealServerNodes().forEach(node -> result.put(node, getLoad(node)));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * get capacity of server for the next acquire
+     *
+     * @param server real node
+     * @return capacity
+     */
+    public long getCapacity(String server) {
+        RingSnapshot snapshot = snapshotLoads().ring;
+        for (int owner = 0; owner < snapshot.nodes.length; owner++) {
+            if (snapshot.nodes[owner].equals(server)) {
+                return capacity(snapshot, owner, totalLoad.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * get total load of real server nodes
+     *
+     * @return total load
+     */
+    public long getTotalLoad() {
+        return totalLoad.get();
+    }
+
+    @Override
+    public List<String> getRealServerNodes() {
+        return ring.getRealServerNodes();
+    }
+
+    /**
+     * walk clockwise from node to the first real node with spare capacity
+     *
+     * @param current loads of snapshot
+     * @param node    node
+     * @param acquire increase load of the found real node
+     * @return real node ordinal,-1 if a counter of the snapshot was retired and the caller has to
+     * retry with the latest snapshot
+     */
+    private int find(SnapshotLoads current, String node, boolean acquire) {
+        RingSnapshot snapshot = current.ring;
+        int size = snapshot.size();
+        if (size == 0) {
+            throw new NoSuchElementException("No server node in ring!");
+        }
+        int start = snapshot.indexOf(ring.getHash(node));
+        for (int i = 0; i < size; i++) {
+            int position = start + i < size ? start + i : start + i - size;
+            int owner = snapshot.owners[position];
+            AtomicLong load = current.loads[owner];
+            for (long value = load.get(); value < capacity(snapshot, owner, totalLoad.get());
+                    value = load.get()) {
+                if (value < 0) {
+                    return -1;
+                }
+                if (!acquire) {
+                    return owner;
+                }
+                if (load.compareAndSet(value, value + 1)) {
+                    totalLoad.incrementAndGet();
+                    return owner;
+                }
+            }
+        }
+        // every real node is full,which only happens when loads race with capacity
+        int owner = snapshot.owners[start];
+        AtomicLong load = current.loads[owner];
+        for (long value; (value = load.get()) >= 0; ) {
+            if (!acquire) {
+                return owner;
+            }
+            if (load.compareAndSet(value, value + 1)) {
+                totalLoad.incrementAndGet();
+                return owner;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * capacity of real node,ceil((1+ε)·(totalLoad+1)·weight/totalWeight)
+     *
+     * @param snapshot  ring snapshot
+     * @param owner     real node ordinal
+     * @param totalLoad total load
+     * @return capacity
+     */
+    private long capacity(RingSnapshot snapshot, int owner, long totalLoad) {
+        return (long) Math.ceil((1 + epsilon) * (totalLoad + 1) * snapshot.weights[owner]
+                / snapshot.totalWeight);
+    }
+
+    /**
+     * resolve load counters of the current ring snapshot
+     *
+     * @return loads of snapshot
+     */
+    private SnapshotLoads snapshotLoads() {
+        SnapshotLoads current = snapshotLoads;
+        return current.ring == ring.snapshot() ? current : resolve();
+    }
+
+    /**
+     * resolve load counters of the latest ring snapshot,counters of removed real nodes are retired
+     * and their outstanding load is subtracted from total load so it no longer inflates
+     * capacities.a retired counter never takes load again,an acquire racing with the retirement
+     * either lands before it and is subtracted with it,or fails and retries on this snapshot
+     *
+     * @return loads of snapshot
+     */
+    private synchronized SnapshotLoads resolve() {
+        RingSnapshot snapshot = ring.snapshot();
+        SnapshotLoads current = snapshotLoads;
+        if (current.ring == snapshot) {
+            return current;
+        }
+        AtomicLong[] counters = new AtomicLong[snapshot.nodes.length];
+        Set<String> nodes = new HashSet<>(Arrays.asList(snapshot.nodes));
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = loads.computeIfAbsent(snapshot.nodes[i], node -> new AtomicLong());
+        }
+        for (Iterator<Map.Entry<String, AtomicLong>> it = loads.entrySet().iterator();
+                it.hasNext(); ) {
+            Map.Entry<String, AtomicLong> entry = it.next();
+            if (!nodes.contains(entry.getKey())) {
+                it.remove();
+                totalLoad.addAndGet(-entry.getValue().getAndSet(RETIRED));
+            }
+        }
+        current = new SnapshotLoads(snapshot, counters);
+        snapshotLoads = current;
+        return current;
+    }
+
+    /**
+     * one unit of load acquired on a real node,bound to the counter it was taken from
+     */
+    public static final class Lease {
+
+        private final String server;
+
+        private final AtomicLong load;
+
+        private Lease(String server, AtomicLong load) {
+            this.server = server;
+            this.load = load;
+        }
+
+        /**
+         * get real node
+         *
+         * @return real node
+         */
+        public String getServer() {
+            return server;
+        }
+    }
+
+    /**
+     * load counters of a ring snapshot,index:node ordinal
+     */
+    private static final class SnapshotLoads {
+
+        private final RingSnapshot ring;
+
+        private final AtomicLong[] loads;
+
+        private SnapshotLoads(RingSnapshot ring, AtomicLong[] loads) {
+            this.ring = ring;
+            this.loads = loads;
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.github.ji4597056;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -10,11 +17,14 @@ import java.util.stream.IntStream;
 
 /**
  * ConsistentHashingWithVirtualNode
+ * <p>
+ * lookups read an immutable ring snapshot and never wait,membership changes are serialized on the
+ * instance and publish a new snapshot(copy-on-write)
  *
  * @author Jeffrey
  * @since 2018/03/06 2:22
  */
-public class ConsistentHashingWithVirtualNode {
+public class ConsistentHashingWithVirtualNode implements Router {
 
     /**
      * virtual server node suffix
@@ -23,14 +33,35 @@ public class ConsistentHashingWithVirtualNode {
     private static final String VIRTUAL_SERVER_NODE_SUFFIX = "##";
 
     /**
-     * virtual server nodes,key:node hash/value:node name
+     * virtual server node hashes,key:real node/value:hash of virtual node of every index,guarded
+     * by this
      */
-    private static final SortedMap<Integer, String> VIRTUAL_SERVER_NODES = new TreeMap<>();
+    private final Map<String, int[]> virtualServerNodes = new HashMap<>();
 
     /**
-     * real server nodes
+     * default weight of real server node
      */
-    private static final List<String> REAL_SERVER_NODES = new LinkedList<>();
+    private static final int DEFAULT_WEIGHT = 1;
+
+    /**
+     * real server nodes,key:node/value:weight,guarded by this
+     */
+    private final Map<String, Integer> realServerNodes = new LinkedHashMap<>();
+
+    /**
+     * immutable ring snapshot used by lookups,rebuilt and swapped on every membership change
+     */
+    private volatile RingSnapshot ring = RingSnapshot.EMPTY;
+
+    /**
+     * lookup metrics,null if disabled
+     */
+    private volatile RingMetrics metrics;
+
+    /**
+     * near cache of recent lookups,null if disabled
+     */
+    private volatile NearCache nearCache;
 
     /**
      * hash function
@@ -43,24 +74,44 @@ public class ConsistentHashingWithVirtualNode {
     private final int virtualNodesNum;
 
     public ConsistentHashingWithVirtualNode(List<String> realNodes, int virtualNodeNum, Hash hash) {
-        REAL_SERVER_NODES.addAll(realNodes);
+        this(weightOf(realNodes), virtualNodeNum, hash);
+    }
+
+    public ConsistentHashingWithVirtualNode(List<String> realNodes, int virtualNodeNum) {
+        this(realNodes, virtualNodeNum, new FnvHash());
+    }
+
+    /**
+     * weighted real nodes,every real node gets weight * virtualNodeNum virtual nodes
+     *
+     * @param weightedNodes  real nodes,key:node/value:weight
+     * @param virtualNodeNum virtual nodes numbers of weight 1
+     * @param hash           hash function
+     */
+    public ConsistentHashingWithVirtualNode(Map<String, Integer> weightedNodes, int virtualNodeNum,
+            Hash hash) {
+        if (virtualNodeNum <= 0) {
+            throw new IllegalArgumentException("Virtual node numbers must be positive!");
+        }
+        weightedNodes.values().forEach(ConsistentHashingWithVirtualNode::checkWeight);
+        this.realServerNodes.putAll(weightedNodes);
         this.virtualNodesNum = virtualNodeNum;
         this.hash = hash;
         init();
     }
 
-    public ConsistentHashingWithVirtualNode(List<String> realNodes, int virtualNodeNum) {
-        this(realNodes, virtualNodeNum, new FnvHash());
+    public ConsistentHashingWithVirtualNode(Map<String, Integer> weightedNodes,
+            int virtualNodeNum) {
+        this(weightedNodes, virtualNodeNum, new FnvHash());
     }
 
     /**
      * put virtual server nodes
      */
-    private void init() {
-        REAL_SERVER_NODES.forEach(node -> IntStream.range(0, virtualNodesNum)
-                .forEach(index -> VIRTUAL_SERVER_NODES
-                        .put(hash.getHash(getVirtualNodeKey(node, index)),
-                                getVirtualNodeKey(node, index))));
+    private synchronized void init() {
+        realServerNodes
+                .forEach((node, weight) -> putVirtualNodes(node, 0, weight * virtualNodesNum));
+        refresh();
     }
 
     /**
@@ -69,58 +120,475 @@ public class ConsistentHashingWithVirtualNode {
      * @param node node
      * @return real node
      */
+    @Override
     public String getServer(String node) {
-        int hash = this.hash.getHash(node);
-        SortedMap<Integer, String> subMap = VIRTUAL_SERVER_NODES.tailMap(hash);
-        String virtualNode;
-        if (subMap.size() == 0) {
-            // if node's hash max,return first virtual server node
-            virtualNode = VIRTUAL_SERVER_NODES.get(VIRTUAL_SERVER_NODES.firstKey());
-        } else {
-            virtualNode = subMap.get(subMap.firstKey());
+        // if node's hash max,snapshot returns first virtual server node
+        long start = startTime();
+        NearCache nearCache = this.nearCache;
+        if (nearCache == null) {
+            return lookup(this.hash.getHash(node), start);
+        }
+        RingSnapshot ring = this.ring;
+        NearCache.Entry entry = nearCache.get(ring.version, node);
+        if (entry == null) {
+            int owner = ring.getOwner(this.hash.getHash(node));
+            nearCache.put(ring.version, node, owner, ring.nodes[owner]);
+            return record(ring, owner, start);
+        }
+        RingMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.record(ring, entry.owner, start);
+        }
+        return entry.server;
+    }
+
+    /**
+     * get server from binary node
+     *
+     * @param node   node
+     * @param offset offset of the first byte
+     * @param length bytes length
+     * @return real node
+     */
+    public String getServer(byte[] node, int offset, int length) {
+        long start = startTime();
+        return lookup(this.hash.getHash(node, offset, length), start);
+    }
+
+    /**
+     * get server from the remaining bytes of node,buffer position is not changed
+     *
+     * @param node node
+     * @return real node
+     */
+    public String getServer(ByteBuffer node) {
+        long start = startTime();
+        return lookup(this.hash.getHash(node), start);
+    }
+
+    /**
+     * get server from long node
+     *
+     * @param node node
+     * @return real node
+     */
+    public String getServer(long node) {
+        long start = startTime();
+        return lookup(this.hash.getHash(node), start);
+    }
+
+    /**
+     * start time of a lookup when metrics are enabled
+     *
+     * @return {@link System#nanoTime()},0 if metrics are disabled
+     */
+    private long startTime() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * get server from hash and record metrics if enabled
+     *
+     * @param hash  hash
+     * @param start start time of lookup
+     * @return real node
+     */
+    private String lookup(int hash, long start) {
+        RingSnapshot ring = this.ring;
+        return record(ring, ring.getOwner(hash), start);
+    }
+
+    /**
+     * record metrics of a lookup if enabled
+     *
+     * @param ring  ring snapshot of the lookup
+     * @param owner real node ordinal found
+     * @param start start time of lookup
+     * @return real node
+     */
+    private String record(RingSnapshot ring, int owner, long start) {
+        RingMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.record(ring, owner, start);
+        }
+        return ring.nodes[owner];
+    }
+
+    /**
+     * enable lookup metrics,single lookups are counted per real node and timed
+     *
+     * @return metrics
+     */
+    public synchronized RingMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new RingMetrics(this);
+        }
+        return metrics;
+    }
+
+    /**
+     * disable lookup metrics
+     */
+    public synchronized void disableMetrics() {
+        metrics = null;
+    }
+
+    /**
+     * get lookup metrics
+     *
+     * @return metrics,null if disabled
+     */
+    public RingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * enable near cache of {@link #getServer(String)},entries are dropped by every membership
+     * change
+     *
+     * @param capacity entries numbers,rounded up to a power of 2
+     * @return near cache,the existing one if already enabled
+     */
+    public synchronized NearCache enableNearCache(int capacity) {
+        if (nearCache == null) {
+            nearCache = new NearCache(capacity);
+        }
+        return nearCache;
+    }
+
+    /**
+     * disable near cache
+     */
+    public synchronized void disableNearCache() {
+        nearCache = null;
+    }
+
+    /**
+     * get near cache
+     *
+     * @return near cache,null if disabled
+     */
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * get servers of many nodes,grouped by real node so callers can send one request per server
+     *
+     * @param nodes nodes
+     * @return nodes grouped by real node,key:real node/value:nodes
+     */
+    public Map<String, List<String>> getServers(String[] nodes) {
+        RingSnapshot ring = this.ring;
+        int[] hashes = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            hashes[i] = hash.getHash(nodes[i]);
+        }
+        int[] owners = ring.getOwners(hashes);
+        List<String>[] groups = newGroups(ring.nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            List<String> group = groups[owners[i]];
+            if (group == null) {
+                group = groups[owners[i]] = new ArrayList<>();
+            }
+            group.add(nodes[i]);
+        }
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (int i = 0; i < groups.length; i++) {
+            if (groups[i] != null) {
+                result.put(ring.nodes[i], groups[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * get servers of many nodes,grouped by real node so callers can send one request per server
+     *
+     * @param nodes nodes
+     * @return nodes grouped by real node,key:real node/value:nodes
+     */
+    public Map<String, List<String>> getServers(Collection<String> nodes) {
+        return getServers(nodes.toArray(new String[0]));
+    }
+
+    /**
+     * get replica servers of node,the first distinct real nodes clockwise from it
+     *
+     * @param node     node
+     * @param replicas replicas numbers
+     * @return real nodes,the first one is {@link #getServer(String)},fewer than replicas if the
+     * ring has fewer real nodes
+     */
+    public List<String> getServers(String node, int replicas) {
+        if (replicas <= 0) {
+            throw new IllegalArgumentException("Replicas must be positive!");
+        }
+        RingSnapshot ring = this.ring;
+        int[] owners = ring.getReplicas(hash.getHash(node), replicas);
+        String[] servers = new String[owners.length];
+        for (int i = 0; i < owners.length; i++) {
+            servers[i] = ring.nodes[owners[i]];
         }
-        return virtualNode.substring(0, virtualNode.indexOf(VIRTUAL_SERVER_NODE_SUFFIX));
+        return Arrays.asList(servers);
     }
 
     /**
-     * add server node
+     * add server node with default weight
      *
      * @param serverNode server node
+     * @return hash ranges moved to the server node
      */
-    public void addServerNode(String serverNode) {
-        REAL_SERVER_NODES.add(serverNode);
-        IntStream.range(0, virtualNodesNum).forEach(index -> VIRTUAL_SERVER_NODES
-                .put(hash.getHash(getVirtualNodeKey(serverNode, index)),
-                        getVirtualNodeKey(serverNode, index)));
+    public List<MovedRange> addServerNode(String serverNode) {
+        return addServerNode(serverNode, DEFAULT_WEIGHT);
+    }
+
+    /**
+     * add server node,or change weight of an existing server node by adding or removing only the
+     * delta of its virtual nodes
+     *
+     * @param serverNode server node
+     * @param weight     weight,weight * virtualNodesNum virtual nodes
+     * @return hash ranges whose owner changed,empty if the server node already has the weight
+     */
+    public synchronized List<MovedRange> addServerNode(String serverNode, int weight) {
+        checkWeight(weight);
+        RingSnapshot before = ring;
+        if (!putServerNode(serverNode, weight)) {
+            return Collections.emptyList();
+        }
+        return RingSnapshot.diff(before, refresh());
     }
 
     /**
      * remove server node
      *
      * @param serverNode server node
+     * @return hash ranges moved away from the server node,empty if it is not in the ring
+     */
+    public synchronized List<MovedRange> removeServerNode(String serverNode) {
+        RingSnapshot before = ring;
+        if (!deleteServerNode(serverNode)) {
+            return Collections.emptyList();
+        }
+        return RingSnapshot.diff(before, refresh());
+    }
+
+    /**
+     * add and remove server nodes with one ring rebuild
+     *
+     * @param added   server nodes to add with default weight
+     * @param removed server nodes to remove
+     * @return hash ranges whose owner changed
+     */
+    public synchronized List<MovedRange> applyMembership(Collection<String> added,
+            Collection<String> removed) {
+        RingSnapshot before = ring;
+        boolean changed = false;
+        for (String serverNode : removed) {
+            changed |= deleteServerNode(serverNode);
+        }
+        for (String serverNode : added) {
+            changed |= putServerNode(serverNode, DEFAULT_WEIGHT);
+        }
+        if (!changed) {
+            return Collections.emptyList();
+        }
+        return RingSnapshot.diff(before, refresh());
+    }
+
+    /**
+     * put server node with weight,caller must hold this
+     *
+     * @param serverNode server node
+     * @param weight     weight,positive
+     * @return false if the server node already has the weight
+     */
+    private boolean putServerNode(String serverNode, int weight) {
+        Integer oldWeight = realServerNodes.put(serverNode, weight);
+        int from = oldWeight == null ? 0 : oldWeight * virtualNodesNum;
+        int to = weight * virtualNodesNum;
+        if (from == to) {
+            return false;
+        }
+        if (from < to) {
+            putVirtualNodes(serverNode, from, to);
+        } else {
+            removeVirtualNodes(serverNode, to);
+        }
+        return true;
+    }
+
+    /**
+     * delete server node,caller must hold this
+     *
+     * @param serverNode server node
+     * @return false if the server node is not in the ring
+     */
+    private boolean deleteServerNode(String serverNode) {
+        Integer weight = realServerNodes.remove(serverNode);
+        if (weight == null) {
+            return false;
+        }
+        removeVirtualNodes(serverNode, 0);
+        return true;
+    }
+
+    /**
+     * put virtual nodes of server node,caller must hold this
+     *
+     * @param serverNode server node
+     * @param from       first virtual node index,inclusive
+     * @param to         last virtual node index,exclusive
+     */
+    private void putVirtualNodes(String serverNode, int from, int to) {
+        int[] hashes = Arrays.copyOf(virtualServerNodes.getOrDefault(serverNode, new int[0]), to);
+        IntStream.range(from, to).forEach(
+                index -> hashes[index] = hash.getHash(getVirtualNodeKey(serverNode, index)));
+        virtualServerNodes.put(serverNode, hashes);
+    }
+
+    /**
+     * remove virtual nodes of server node from index to the last one,caller must hold this
+     *
+     * @param serverNode server node
+     * @param from       first virtual node index,inclusive
+     */
+    private void removeVirtualNodes(String serverNode, int from) {
+        if (from == 0) {
+            virtualServerNodes.remove(serverNode);
+        } else {
+            virtualServerNodes.put(serverNode,
+                    Arrays.copyOf(virtualServerNodes.get(serverNode), from));
+        }
+    }
+
+    /**
+     * build a new ring snapshot and swap it in,caller must hold this
+     *
+     * @return new ring snapshot
+     */
+    private RingSnapshot refresh() {
+        ring = RingSnapshot.of(realServerNodes, virtualServerNodes);
+        return ring;
+    }
+
+    /**
+     * get hash of node with the ring's hash function
+     *
+     * @param node node
+     * @return hash
      */
-    public void removeServerNode(String serverNode) {
-        REAL_SERVER_NODES.remove(serverNode);
-        IntStream.range(0, virtualNodesNum).forEach(index -> VIRTUAL_SERVER_NODES
-                .remove(hash.getHash(getVirtualNodeKey(serverNode, index))));
+    int getHash(String node) {
+        return hash.getHash(node);
+    }
+
+    /**
+     * get hash function of the ring
+     *
+     * @return hash function
+     */
+    Hash getHashFunction() {
+        return hash;
+    }
+
+    /**
+     * get current ring snapshot
+     *
+     * @return ring snapshot
+     */
+    RingSnapshot snapshot() {
+        return ring;
+    }
+
+    /**
+     * export ring to a compact binary file,open it with {@link MappedRing#open(Path, Hash)}
+     *
+     * @param path ring file
+     * @throws IOException if file can not be written
+     */
+    public void export(Path path) throws IOException {
+        MappedRing.write(ring, hash, path);
     }
 
     /**
      * get real server nodes
      *
-     * @return real server nodes
+     * @return real server nodes of the current snapshot
      */
+    @Override
     public List<String> getRealServerNodes() {
-        return Collections.unmodifiableList(REAL_SERVER_NODES);
+        return Collections.unmodifiableList(Arrays.asList(ring.nodes));
+    }
+
+    /**
+     * get real server node weights
+     *
+     * @return copy of real server node weights,key:node/value:weight
+     */
+    public synchronized Map<String, Integer> getRealServerNodeWeights() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(realServerNodes));
+    }
+
+    /**
+     * get virtual server nodes,of colliding virtual nodes only the one owning the hash is shown
+     *
+     * @return copy of virtual server nodes,key:node hash/value:node name
+     */
+    public synchronized Map<Integer, String> getVirtualServerNodes() {
+        SortedMap<Integer, String> result = new TreeMap<>();
+        virtualServerNodes.forEach((node, hashes) -> IntStream.range(0, hashes.length)
+                .forEach(index -> result.merge(hashes[index], getVirtualNodeKey(node, index),
+                        (a, b) -> getRealNodeKey(a).compareTo(getRealNodeKey(b)) <= 0 ? a : b)));
+        return Collections.unmodifiableMap(result);
     }
 
     /**
-     * get virtual server nodes
+     * get numbers of virtual server nodes whose hash is already taken by another virtual server
+     * node,all of them stay in the ring and are removed exactly with their real node
      *
-     * @return virtual server nodes
+     * @return collisions of the current snapshot
+     */
+    public int getCollisionCount() {
+        return ring.collisions;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<String>[] newGroups(int size) {
+        return new List[size];
+    }
+
+    /**
+     * real nodes with default weight
+     *
+     * @param realNodes real nodes
+     * @return weighted real nodes
+     */
+    private static Map<String, Integer> weightOf(List<String> realNodes) {
+        Map<String, Integer> weightedNodes = new LinkedHashMap<>();
+        realNodes.forEach(node -> weightedNodes.put(node, DEFAULT_WEIGHT));
+        return weightedNodes;
+    }
+
+    /**
+     * check weight
+     *
+     * @param weight weight
+     */
+    private static void checkWeight(int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive!");
+        }
+    }
+
+    /**
+     * get real node key of virtual node
+     *
+     * @param virtualNodeKey virtual node
+     * @return real node
      */
-    public Map<Integer, String> getVirtualServerNodes() {
-        return Collections.unmodifiableMap(VIRTUAL_SERVER_NODES);
+    private String getRealNodeKey(String virtualNodeKey) {
+        return virtualNodeKey.substring(0, virtualNodeKey.lastIndexOf(VIRTUAL_SERVER_NODE_SUFFIX));
     }
 
     /**
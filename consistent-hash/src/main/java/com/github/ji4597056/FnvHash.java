@@ -1,20 +1,71 @@
 package com.github.ji4597056;
 
+import java.nio.ByteBuffer;
+
 /**
  * fnv1_32_hash
+ * <p>
+ * bytes are hashed as unsigned values,so an ascii string and its bytes get the same hash
  *
  * @author Jeffrey
  * @since 2018/03/06 1:20
  */
 public class FnvHash implements Hash {
 
+    private static final int PRIME = 16777619;
+
+    private static final int OFFSET_BASIS = (int) 2166136261L;
+
     @Override
     public int getHash(String key) {
-        final int p = 16777619;
-        int hash = (int) 2166136261L;
+        int hash = OFFSET_BASIS;
         for (int i = 0; i < key.length(); i++) {
-            hash = (hash ^ key.charAt(i)) * p;
+            hash = (hash ^ key.charAt(i)) * PRIME;
+        }
+        return finish(hash);
+    }
+
+    @Override
+    public int getHash(byte[] key, int offset, int length) {
+        int hash = OFFSET_BASIS;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = (hash ^ (key[i] & 0xff)) * PRIME;
+        }
+        return finish(hash);
+    }
+
+    @Override
+    public int getHash(ByteBuffer key) {
+        if (key.hasArray()) {
+            return getHash(key.array(), key.arrayOffset() + key.position(), key.remaining());
         }
+        int hash = OFFSET_BASIS;
+        for (int i = key.position(), end = key.limit(); i < end; i++) {
+            hash = (hash ^ (key.get(i) & 0xff)) * PRIME;
+        }
+        return finish(hash);
+    }
+
+    @Override
+    public int getHash(long key) {
+        int hash = OFFSET_BASIS;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash ^ (int) ((key >>> (i << 3)) & 0xff)) * PRIME;
+        }
+        return finish(hash);
+    }
+
+    /**
+     * hashes are non-negative
+     *
+     * @return 0
+     */
+    @Override
+    public int getMinHash() {
+        return 0;
+    }
+
+    private static int finish(int hash) {
         hash += hash << 13;
         hash ^= hash >> 7;
         hash += hash << 3;
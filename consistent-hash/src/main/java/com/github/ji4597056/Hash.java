@@ -1,5 +1,8 @@
 package com.github.ji4597056;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Hash
  *
@@ -15,4 +18,63 @@ public interface Hash {
      * @return hash
      */
     int getHash(String key);
+
+    /**
+     * get hash from bytes,implementations should hash the bytes in place
+     *
+     * @param key    key
+     * @param offset offset of the first byte
+     * @param length bytes length
+     * @return hash
+     */
+    default int getHash(byte[] key, int offset, int length) {
+        return getHash(new String(key, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * get hash from the remaining bytes of buffer,buffer position is not changed
+     *
+     * @param key key
+     * @return hash
+     */
+    default int getHash(ByteBuffer key) {
+        if (key.hasArray()) {
+            return getHash(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        }
+        byte[] bytes = new byte[key.remaining()];
+        key.duplicate().get(bytes);
+        return getHash(bytes, 0, bytes.length);
+    }
+
+    /**
+     * get hash from long,hashed as 8 little-endian bytes
+     *
+     * @param key key
+     * @return hash
+     */
+    default int getHash(long key) {
+        byte[] bytes = new byte[Long.BYTES];
+        for (int i = 0; i < Long.BYTES; i++) {
+            bytes[i] = (byte) (key >>> (i << 3));
+        }
+        return getHash(bytes, 0, bytes.length);
+    }
+
+    /**
+     * get the smallest hash this function produces
+     *
+     * @return min hash
+     */
+    default int getMinHash() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * get the largest hash this function produces
+     *
+     * @return max hash
+     */
+    default int getMaxHash() {
+        return Integer.MAX_VALUE;
+    }
 }
@@ -0,0 +1,88 @@
+package com.github.ji4597056;
+
+/**
+ * reads hash input in place:utf-8 encoded chars of strings and little-endian words of bytes,so
+ * hash functions need no intermediate byte array
+ * <p>
+ * unpaired surrogates are encoded as '?',same as {@link String#getBytes(java.nio.charset.Charset)}
+ *
+ * @author Jeffrey
+ * @since 2018/03/13 11:26
+ */
+final class HashInput {
+
+    private HashInput() {
+    }
+
+    /**
+     * utf-8 encode the char(or surrogate pair) at index
+     *
+     * @param key   string
+     * @param index char index
+     * @return encoded bytes packed little-endian in the low 32 bits,bytes count in the high bits
+     */
+    static long encode(String key, int index) {
+        char c = key.charAt(index);
+        if (c < 0x80) {
+            return 1L << 32 | c;
+        }
+        if (c < 0x800) {
+            return 2L << 32 | (0x80 | (c & 0x3f)) << 8 | (0xc0 | c >>> 6);
+        }
+        if (!Character.isSurrogate(c)) {
+            return 3L << 32 | (0x80 | (c & 0x3f)) << 16 | (0x80 | (c >>> 6 & 0x3f)) << 8
+                    | (0xe0 | c >>> 12);
+        }
+        if (Character.isHighSurrogate(c) && index + 1 < key.length()
+                && Character.isLowSurrogate(key.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, key.charAt(index + 1));
+            return 4L << 32 | (0x80L | (codePoint & 0x3f)) << 24
+                    | (0x80 | (codePoint >>> 6 & 0x3f)) << 16
+                    | (0x80 | (codePoint >>> 12 & 0x3f)) << 8 | (0xf0 | codePoint >>> 18);
+        }
+        return 1L << 32 | '?';
+    }
+
+    /**
+     * encoded bytes count
+     *
+     * @param encoded encoded char
+     * @return bytes count
+     */
+    static int length(long encoded) {
+        return (int) (encoded >>> 32);
+    }
+
+    /**
+     * chars consumed by encoded char
+     *
+     * @param encoded encoded char
+     * @return 2 for a surrogate pair,else 1
+     */
+    static int chars(long encoded) {
+        return encoded >>> 32 == 4 ? 2 : 1;
+    }
+
+    /**
+     * read little-endian int
+     *
+     * @param bytes  bytes
+     * @param offset offset
+     * @return int
+     */
+    static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | bytes[offset + 3] << 24;
+    }
+
+    /**
+     * read little-endian long
+     *
+     * @param bytes  bytes
+     * @param offset offset
+     * @return long
+     */
+    static long getLong(byte[] bytes, int offset) {
+        return (getInt(bytes, offset) & 0xffffffffL) | (long) getInt(bytes, offset + 4) << 32;
+    }
+}
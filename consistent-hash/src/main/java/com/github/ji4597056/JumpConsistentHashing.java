@@ -0,0 +1,97 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * jump consistent hash(Lamping & Veach),O(1) memory per real node and no virtual nodes
+ * <p>
+ * buckets are numbered,so only the last bucket can leave without moving other nodes' keys.removing
+ * another server node moves the last server node into its bucket
+ *
+ * @author Jeffrey
+ * @since 2018/03/19 10:40
+ */
+public class JumpConsistentHashing implements Router {
+
+    /**
+     * real server nodes,index:bucket
+     */
+    private volatile String[] buckets;
+
+    /**
+     * hash function
+     */
+    private final Hash hash;
+
+    public JumpConsistentHashing(List<String> realNodes, Hash hash) {
+        this.buckets = realNodes.toArray(new String[0]);
+        this.hash = hash;
+    }
+
+    public JumpConsistentHashing(List<String> realNodes) {
+        this(realNodes, new FnvHash());
+    }
+
+    @Override
+    public String getServer(String node) {
+        String[] buckets = this.buckets;
+        if (buckets.length == 0) {
+            throw new NoSuchElementException("No server node!");
+        }
+        return buckets[jump(hash.getHash(node) & 0xffffffffL, buckets.length)];
+    }
+
+    /**
+     * add server node as the last bucket
+     *
+     * @param serverNode server node
+     */
+    public synchronized void addServerNode(String serverNode) {
+        String[] buckets = Arrays.copyOf(this.buckets, this.buckets.length + 1);
+        buckets[buckets.length - 1] = serverNode;
+        this.buckets = buckets;
+    }
+
+    /**
+     * remove server node,the last server node takes over its bucket
+     *
+     * @param serverNode server node
+     */
+    public synchronized void removeServerNode(String serverNode) {
+        int index = Arrays.asList(this.buckets).indexOf(serverNode);
+        if (index < 0) {
+            return;
+        }
+        String[] buckets = Arrays.copyOf(this.buckets, this.buckets.length - 1);
+        if (index < buckets.length) {
+            buckets[index] = this.buckets[buckets.length];
+        }
+        this.buckets = buckets;
+    }
+
+    @Override
+    public List<String> getRealServerNodes() {
+        return Collections.unmodifiableList(Arrays.asList(buckets));
+    }
+
+    /**
+     * jump consistent hash
+     *
+     * @param key     key
+     * @param buckets buckets numbers
+     * @return bucket
+     */
+    static int jump(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+}
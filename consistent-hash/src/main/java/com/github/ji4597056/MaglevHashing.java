@@ -0,0 +1,160 @@
+package com.github.ji4597056;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * maglev hashing,every real node fills a prime sized lookup table through its own permutation,a
+ * lookup is one table read
+ * <p>
+ * the table is rebuilt on every membership change,lookups read the current table and never wait
+ *
+ * @author Jeffrey
+ * @since 2018/03/19 14:26
+ */
+public class MaglevHashing implements Router {
+
+    /**
+     * default lookup table size,should be prime and much larger than real nodes numbers
+     */
+    public static final int DEFAULT_TABLE_SIZE = 65537;
+
+    /**
+     * suffix of the key hashed for a real node's permutation skip
+     */
+    private static final String SKIP_SUFFIX = "##skip";
+
+    /**
+     * real server nodes,guarded by this
+     */
+    private final List<String> realServerNodes;
+
+    /**
+     * current lookup table
+     */
+    private volatile Table table;
+
+    /**
+     * hash function
+     */
+    private final Hash hash;
+
+    /**
+     * lookup table size
+     */
+    private final int tableSize;
+
+    public MaglevHashing(List<String> realNodes, int tableSize, Hash hash) {
+        if (!BigInteger.valueOf(tableSize).isProbablePrime(32)) {
+            throw new IllegalArgumentException("Table size must be prime!");
+        }
+        this.realServerNodes = new ArrayList<>(realNodes);
+        this.tableSize = tableSize;
+        this.hash = hash;
+        this.table = populate();
+    }
+
+    public MaglevHashing(List<String> realNodes, Hash hash) {
+        this(realNodes, DEFAULT_TABLE_SIZE, hash);
+    }
+
+    public MaglevHashing(List<String> realNodes) {
+        this(realNodes, DEFAULT_TABLE_SIZE, new FnvHash());
+    }
+
+    @Override
+    public String getServer(String node) {
+        Table table = this.table;
+        if (table.nodes.length == 0) {
+            throw new NoSuchElementException("No server node!");
+        }
+        return table.nodes[table.entries[Math.floorMod(hash.getHash(node), tableSize)]];
+    }
+
+    /**
+     * add server node
+     *
+     * @param serverNode server node
+     */
+    public synchronized void addServerNode(String serverNode) {
+        realServerNodes.add(serverNode);
+        table = populate();
+    }
+
+    /**
+     * remove server node
+     *
+     * @param serverNode server node
+     */
+    public synchronized void removeServerNode(String serverNode) {
+        if (realServerNodes.remove(serverNode)) {
+            table = populate();
+        }
+    }
+
+    @Override
+    public List<String> getRealServerNodes() {
+        return Collections.unmodifiableList(Arrays.asList(table.nodes));
+    }
+
+    /**
+     * populate lookup table,real nodes take turns to claim their next preferred empty entry
+     *
+     * @return lookup table
+     */
+    private Table populate() {
+        String[] nodes = realServerNodes.toArray(new String[0]);
+        int[] entries = new int[tableSize];
+        if (nodes.length == 0) {
+            return new Table(nodes, entries);
+        }
+        long[] offsets = new long[nodes.length];
+        long[] skips = new long[nodes.length];
+        long[] next = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i] = Math.floorMod(hash.getHash(nodes[i]), tableSize);
+            skips[i] = Math.floorMod(hash.getHash(nodes[i] + SKIP_SUFFIX), tableSize - 1) + 1;
+        }
+        Arrays.fill(entries, -1);
+        int filled = 0;
+        while (true) {
+            for (int i = 0; i < nodes.length; i++) {
+                int entry = (int) ((offsets[i] + next[i] * skips[i]) % tableSize);
+                while (entries[entry] >= 0) {
+                    next[i]++;
+                    entry = (int) ((offsets[i] + next[i] * skips[i]) % tableSize);
+                }
+                entries[entry] = i;
+                next[i]++;
+                if (++filled == tableSize) {
+                    return new Table(nodes, entries);
+                }
+            }
+        }
+    }
+
+    /**
+     * immutable lookup table
+     */
+    private static final class Table {
+
+        /**
+         * real server nodes,index:node ordinal
+         */
+        private final String[] nodes;
+
+        /**
+         * real node ordinal of every entry
+         */
+        private final int[] entries;
+
+        private Table(String[] nodes, int[] entries) {
+            this.nodes = nodes;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.ji4597056;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * read-only ring memory-mapped from a file written by
+ * {@link ConsistentHashingWithVirtualNode#export(Path)},lookups binary search the mapped hashes so
+ * startup is a mmap and jvms on one host share the page cache
+ * <p>
+ * file format(big-endian):
+ * <pre>
+ * int    magic "RING"
+ * int    version
+ * int    hash function class name length,utf-8 bytes
+ * int    real nodes numbers
+ * int    virtual nodes numbers
+ * per real node:int weight,int name length,utf-8 bytes
+ * padding to 4 bytes
+ * int[]  virtual node hashes,sorted
+ * int[]  real node ordinals,parallel to hashes
+ * </pre>
+ *
+ * @author Jeffrey
+ * @since 2018/04/02 11:15
+ */
+public class MappedRing implements Router {
+
+    private static final int MAGIC = 0x52494E47;
+
+    private static final int VERSION = 1;
+
+    /**
+     * real server nodes,index:node ordinal
+     */
+    private final String[] nodes;
+
+    /**
+     * mapped virtual server node hashes,sorted ascending
+     */
+    private final IntBuffer hashes;
+
+    /**
+     * mapped real node ordinals,parallel to hashes
+     */
+    private final IntBuffer owners;
+
+    /**
+     * hash function
+     */
+    private final Hash hash;
+
+    private MappedRing(String[] nodes, IntBuffer hashes, IntBuffer owners, Hash hash) {
+        this.nodes = nodes;
+        this.hashes = hashes;
+        this.owners = owners;
+        this.hash = hash;
+    }
+
+    /**
+     * map ring file
+     *
+     * @param path ring file
+     * @param hash hash function the ring was built with
+     * @return mapped ring
+     * @throws IOException if file can not be read
+     */
+    public static MappedRing open(Path path, Hash hash) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a ring file:" + path);
+        }
+        if (buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported ring file version:" + path);
+        }
+        String hashName = readString(buffer, buffer.getInt());
+        if (!hashName.equals(hash.getClass().getName())) {
+            throw new IllegalArgumentException(
+                    "Ring was built with " + hashName + ",not " + hash.getClass().getName());
+        }
+        String[] nodes = new String[buffer.getInt()];
+        int size = buffer.getInt();
+        for (int i = 0; i < nodes.length; i++) {
+            buffer.getInt();
+            nodes[i] = readString(buffer, buffer.getInt());
+        }
+        // Buffer casts keep the java 8 signatures of position/limit
+        ((Buffer) buffer).position(align(buffer.position()));
+        IntBuffer ints = buffer.slice().asIntBuffer();
+        if (ints.remaining() < size * 2) {
+            throw new IOException("Truncated ring file:" + path);
+        }
+        ((Buffer) ints).limit(size);
+        IntBuffer hashes = ints.slice();
+        ((Buffer) ints).limit(size * 2);
+        ((Buffer) ints).position(size);
+        IntBuffer owners = ints.slice();
+        return new MappedRing(nodes, hashes, owners, hash);
+    }
+
+    /**
+     * write ring snapshot to file,the file is replaced atomically
+     *
+     * @param ring ring snapshot
+     * @param hash hash function the ring was built with
+     * @param path ring file
+     * @throws IOException if file can not be written
+     */
+    static void write(RingSnapshot ring, Hash hash, Path path) throws IOException {
+        byte[] hashName = hash.getClass().getName().getBytes(StandardCharsets.UTF_8);
+        byte[][] names = new byte[ring.nodes.length][];
+        int headerSize = 20 + hashName.length;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = ring.nodes[i].getBytes(StandardCharsets.UTF_8);
+            headerSize += 8 + names[i].length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(align(headerSize));
+        header.putInt(MAGIC).putInt(VERSION).putInt(hashName.length).put(hashName)
+                .putInt(ring.nodes.length).putInt(ring.size());
+        for (int i = 0; i < names.length; i++) {
+            header.putInt(ring.weights[i]).putInt(names[i].length).put(names[i]);
+        }
+        ((Buffer) header).position(0);
+        ByteBuffer body = ByteBuffer.allocate(ring.size() * 8);
+        body.asIntBuffer().put(ring.hashes).put(ring.owners);
+        // write a temp file beside the target and rename it over,readers still mapping the old
+        // file keep its inode instead of seeing it truncated
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(),
+                ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String getServer(String node) {
+        return getServer(hash.getHash(node));
+    }
+
+    /**
+     * get server from long node
+     *
+     * @param node node
+     * @return real node
+     */
+    public String getServer(long node) {
+        return getServer(hash.getHash(node));
+    }
+
+    private String getServer(int hash) {
+        int size = hashes.limit();
+        if (size == 0) {
+            throw new NoSuchElementException("No server node in ring!");
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (hashes.get(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return nodes[owners.get(low == size ? 0 : low)];
+    }
+
+    @Override
+    public List<String> getRealServerNodes() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int align(int position) {
+        return (position + 3) & ~3;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.ji4597056;
+
+import java.util.Objects;
+
+/**
+ * hash range whose owner changed after a membership change,nodes with hash in
+ * [startHash,endHash) moved from fromNode to toNode
+ *
+ * @author Jeffrey
+ * @since 2018/03/26 10:20
+ */
+public final class MovedRange {
+
+    /**
+     * first hash,inclusive
+     */
+    private final long startHash;
+
+    /**
+     * last hash,exclusive,up to {@code Integer.MAX_VALUE + 1}
+     */
+    private final long endHash;
+
+    /**
+     * owner before the change,null if the ring was empty
+     */
+    private final String fromNode;
+
+    /**
+     * owner after the change,null if the ring is empty
+     */
+    private final String toNode;
+
+    public MovedRange(long startHash, long endHash, String fromNode, String toNode) {
+        this.startHash = startHash;
+        this.endHash = endHash;
+        this.fromNode = fromNode;
+        this.toNode = toNode;
+    }
+
+    public long getStartHash() {
+        return startHash;
+    }
+
+    public long getEndHash() {
+        return endHash;
+    }
+
+    public String getFromNode() {
+        return fromNode;
+    }
+
+    public String getToNode() {
+        return toNode;
+    }
+
+    /**
+     * whether hash is in this range
+     *
+     * @param hash hash
+     * @return true if startHash <= hash < endHash
+     */
+    public boolean contains(int hash) {
+        return startHash <= hash && hash < endHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MovedRange)) {
+            return false;
+        }
+        MovedRange that = (MovedRange) o;
+        return startHash == that.startHash && endHash == that.endHash
+                && Objects.equals(fromNode, that.fromNode) && Objects.equals(toNode, that.toNode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startHash, endHash, fromNode, toNode);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + startHash + "," + endHash + ")->" + fromNode + "," + toNode;
+    }
+}
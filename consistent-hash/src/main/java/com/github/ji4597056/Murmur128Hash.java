@@ -0,0 +1,136 @@
+package com.github.ji4597056;
+
+/**
+ * murmur_128_hash(x64 variant),truncated to the low 32 bits
+ * <p>
+ * strings are utf-8 encoded and binary keys are hashed in place,results are identical to guava's
+ * murmur3_128 {@code asInt()}
+ *
+ * @author Jeffrey
+ * @since 2018/03/13 14:40
+ */
+public class Murmur128Hash implements Hash {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    @Override
+    public int getHash(String key) {
+        long h1 = 0;
+        long h2 = 0;
+        long k1 = 0;
+        long k2 = 0;
+        int length = 0;
+        // pending utf-8 bytes,little-endian
+        long buffer = 0;
+        int bits = 0;
+        // 32-bit chunks of the current 16 bytes block
+        int chunks = 0;
+        for (int i = 0; i < key.length(); ) {
+            long encoded = HashInput.encode(key, i);
+            i += HashInput.chars(encoded);
+            buffer |= (encoded & 0xffffffffL) << bits;
+            bits += HashInput.length(encoded) << 3;
+            if (bits >= 32) {
+                long chunk = (buffer & 0xffffffffL) << ((chunks & 1) << 5);
+                if (chunks < 2) {
+                    k1 |= chunk;
+                } else {
+                    k2 |= chunk;
+                }
+                buffer >>>= 32;
+                bits -= 32;
+                length += 4;
+                if (++chunks == 4) {
+                    h1 ^= mixK1(k1);
+                    h1 = Long.rotateLeft(h1, 27);
+                    h1 += h2;
+                    h1 = h1 * 5 + 0x52dce729;
+                    h2 ^= mixK2(k2);
+                    h2 = Long.rotateLeft(h2, 31);
+                    h2 += h1;
+                    h2 = h2 * 5 + 0x38495ab5;
+                    k1 = 0;
+                    k2 = 0;
+                    chunks = 0;
+                }
+            }
+        }
+        long chunk = buffer << ((chunks & 1) << 5);
+        if (chunks < 2) {
+            k1 |= chunk;
+        } else {
+            k2 |= chunk;
+        }
+        return makeHash(h1 ^ mixK1(k1), h2 ^ mixK2(k2), length + (bits >>> 3));
+    }
+
+    @Override
+    public int getHash(byte[] key, int offset, int length) {
+        long h1 = 0;
+        long h2 = 0;
+        int end = offset + (length & ~15);
+        for (int i = offset; i < end; i += 16) {
+            h1 ^= mixK1(HashInput.getLong(key, i));
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(HashInput.getLong(key, i + 8));
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = 0, tail = length & 15; i < tail; i++) {
+            long b = (key[end + i] & 0xffL) << ((i & 7) << 3);
+            if (i < 8) {
+                k1 |= b;
+            } else {
+                k2 |= b;
+            }
+        }
+        return makeHash(h1 ^ mixK1(k1), h2 ^ mixK2(k2), length);
+    }
+
+    @Override
+    public int getHash(long key) {
+        return makeHash(mixK1(key), 0, Long.BYTES);
+    }
+
+    private static int makeHash(long h1, long h2, int length) {
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        // guava's asInt() reads the first 4 little-endian bytes,the low bits of h1
+        return (int) h1;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
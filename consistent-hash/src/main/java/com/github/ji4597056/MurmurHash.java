@@ -1,18 +1,122 @@
 package com.github.ji4597056;
 
-import com.google.common.base.Charsets;
-import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
 
 /**
  * murmur_32_hash
+ * <p>
+ * strings are utf-8 encoded and binary keys are hashed in place,results are identical to guava's
+ * murmur3_32
  *
  * @author Jeffrey
  * @since 2018/03/06 9:54
  */
 public class MurmurHash implements Hash{
 
+    private static final int C1 = 0xcc9e2d51;
+
+    private static final int C2 = 0x1b873593;
+
     @Override
     public int getHash(String key) {
-        return Hashing.murmur3_32().hashString(key, Charsets.UTF_8).asInt();
+        int h1 = 0;
+        int length = 0;
+        // pending utf-8 bytes,little-endian
+        long buffer = 0;
+        int bits = 0;
+        for (int i = 0, n = key.length(); i < n; ) {
+            if (bits == 0 && i + 4 <= n) {
+                // ascii fast path,4 chars are one block
+                char c0 = key.charAt(i);
+                char c1 = key.charAt(i + 1);
+                char c2 = key.charAt(i + 2);
+                char c3 = key.charAt(i + 3);
+                if ((c0 | c1 | c2 | c3) < 0x80) {
+                    h1 = mixH1(h1, mixK1(c0 | c1 << 8 | c2 << 16 | c3 << 24));
+                    i += 4;
+                    length += 4;
+                    continue;
+                }
+            }
+            long encoded = HashInput.encode(key, i);
+            i += HashInput.chars(encoded);
+            buffer |= (encoded & 0xffffffffL) << bits;
+            bits += HashInput.length(encoded) << 3;
+            if (bits >= 32) {
+                h1 = mixH1(h1, mixK1((int) buffer));
+                buffer >>>= 32;
+                bits -= 32;
+                length += 4;
+            }
+        }
+        h1 ^= mixK1((int) buffer);
+        return fmix(h1, length + (bits >>> 3));
+    }
+
+    @Override
+    public int getHash(byte[] key, int offset, int length) {
+        int h1 = 0;
+        int end = offset + (length & ~3);
+        for (int i = offset; i < end; i += 4) {
+            h1 = mixH1(h1, mixK1(HashInput.getInt(key, i)));
+        }
+        int k1 = 0;
+        for (int i = 0, tail = length & 3; i < tail; i++) {
+            k1 ^= (key[end + i] & 0xff) << (i << 3);
+        }
+        h1 ^= mixK1(k1);
+        return fmix(h1, length);
+    }
+
+    @Override
+    public int getHash(ByteBuffer key) {
+        if (key.hasArray()) {
+            return getHash(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        }
+        int h1 = 0;
+        int length = key.remaining();
+        int end = key.position() + (length & ~3);
+        for (int i = key.position(); i < end; i += 4) {
+            int k1 = (key.get(i) & 0xff) | (key.get(i + 1) & 0xff) << 8
+                    | (key.get(i + 2) & 0xff) << 16 | key.get(i + 3) << 24;
+            h1 = mixH1(h1, mixK1(k1));
+        }
+        int k1 = 0;
+        for (int i = 0, tail = length & 3; i < tail; i++) {
+            k1 ^= (key.get(end + i) & 0xff) << (i << 3);
+        }
+        h1 ^= mixK1(k1);
+        return fmix(h1, length);
+    }
+
+    @Override
+    public int getHash(long key) {
+        int h1 = mixH1(0, mixK1((int) key));
+        h1 = mixH1(h1, mixK1((int) (key >>> 32)));
+        return fmix(h1, Long.BYTES);
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static int mixH1(int h1, int k1) {
+        h1 ^= k1;
+        h1 = Integer.rotateLeft(h1, 13);
+        h1 = h1 * 5 + 0xe6546b64;
+        return h1;
+    }
+
+    private static int fmix(int h1, int length) {
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
     }
 }
@@ -0,0 +1,149 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * bounded lock-free near cache of recent node to real node lookups
+ * <p>
+ * a direct-mapped array indexed by {@link String#hashCode()},every entry is immutable and tagged
+ * with the version of the ring snapshot it was computed on,so a membership change invalidates all
+ * entries at once by publishing a new snapshot.entries hold the resolved server only,never the
+ * snapshot,so stale entries do not keep old rings alive.entries are read and written with plain
+ * races,a lost write only costs a later miss
+ *
+ * @author Jeffrey
+ * @since 2018/04/12 14:20
+ */
+public class NearCache {
+
+    /**
+     * entries,length is a power of 2
+     */
+    private final Entry[] entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * live entries replaced by another node,re-putting the same node is not an eviction
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    NearCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive!");
+        }
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        this.entries = new Entry[size < capacity ? size << 1 : size];
+    }
+
+    /**
+     * get cached lookup of node
+     *
+     * @param version version of the current ring snapshot
+     * @param node    node
+     * @return entry,null if missed
+     */
+    Entry get(int version, String node) {
+        Entry entry = entries[indexOf(node)];
+        if (entry != null && entry.version == version && entry.node.equals(node)) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * cache lookup of node
+     *
+     * @param version version of the ring snapshot server was found on
+     * @param node    node
+     * @param owner   real node ordinal in that snapshot
+     * @param server  real node
+     */
+    void put(int version, String node, int owner, String server) {
+        int index = indexOf(node);
+        Entry entry = entries[index];
+        if (entry != null && entry.version == version && !entry.node.equals(node)) {
+            evictions.increment();
+        }
+        entries[index] = new Entry(node, version, owner, server);
+    }
+
+    private int indexOf(String node) {
+        int h = node.hashCode();
+        return (h ^ h >>> 16) & (entries.length - 1);
+    }
+
+    /**
+     * get capacity
+     *
+     * @return entries numbers
+     */
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * get hit rate
+     *
+     * @return hits / lookups,0 if no lookup
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * drop all entries and reset counters
+     */
+    public void clear() {
+        Arrays.fill(entries, null);
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * immutable entry
+     */
+    static final class Entry {
+
+        private final String node;
+
+        /**
+         * version of the ring snapshot
+         */
+        private final int version;
+
+        /**
+         * real node ordinal in that snapshot,used by metrics
+         */
+        final int owner;
+
+        final String server;
+
+        private Entry(String node, int version, int owner, String server) {
+            this.node = node;
+            this.version = version;
+            this.owner = owner;
+            this.server = server;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * rendezvous(highest random weight) hashing,a node goes to the real node with the highest score
+ * <p>
+ * scores are computed in a tight loop over primitive arrays,weighted nodes use the logarithmic
+ * method(score = -weight / ln(u)),so adding or removing a real node only moves its own share of
+ * nodes.lookups are O(real nodes),see {@link SkeletonRendezvousHashing} for large clusters
+ *
+ * @author Jeffrey
+ * @since 2018/04/09 10:05
+ */
+public class RendezvousHashing implements Router {
+
+    /**
+     * default weight of real server node
+     */
+    private static final int DEFAULT_WEIGHT = 1;
+
+    /**
+     * real server nodes,key:node/value:weight,guarded by this
+     */
+    private final Map<String, Integer> realServerNodes = new LinkedHashMap<>();
+
+    /**
+     * immutable scoring arrays used by lookups
+     */
+    private volatile Nodes nodes;
+
+    /**
+     * hash function
+     */
+    private final Hash hash;
+
+    public RendezvousHashing(Map<String, Integer> weightedNodes, Hash hash) {
+        this.hash = hash;
+        weightedNodes.forEach((node, weight) -> {
+            checkWeight(weight);
+            realServerNodes.put(node, weight);
+        });
+        refresh();
+    }
+
+    public RendezvousHashing(List<String> realNodes, Hash hash) {
+        this.hash = hash;
+        realNodes.forEach(node -> realServerNodes.put(node, DEFAULT_WEIGHT));
+        refresh();
+    }
+
+    public RendezvousHashing(List<String> realNodes) {
+        this(realNodes, new FnvHash());
+    }
+
+    @Override
+    public String getServer(String node) {
+        return getServer(hash.getHash(node));
+    }
+
+    /**
+     * get server from long node
+     *
+     * @param node node
+     * @return real node
+     */
+    public String getServer(long node) {
+        return getServer(hash.getHash(node));
+    }
+
+    /**
+     * get server from hash of node
+     *
+     * @param hash hash
+     * @return real node
+     */
+    String getServer(int hash) {
+        Nodes nodes = this.nodes;
+        return nodes.names[nodes.select(hash)];
+    }
+
+    /**
+     * add server node with default weight
+     *
+     * @param serverNode server node
+     */
+    public void addServerNode(String serverNode) {
+        addServerNode(serverNode, DEFAULT_WEIGHT);
+    }
+
+    /**
+     * add server node or change its weight
+     *
+     * @param serverNode server node
+     * @param weight     weight
+     */
+    public synchronized void addServerNode(String serverNode, int weight) {
+        checkWeight(weight);
+        realServerNodes.put(serverNode, weight);
+        refresh();
+    }
+
+    /**
+     * remove server node
+     *
+     * @param serverNode server node
+     */
+    public synchronized void removeServerNode(String serverNode) {
+        if (realServerNodes.remove(serverNode) != null) {
+            refresh();
+        }
+    }
+
+    @Override
+    public List<String> getRealServerNodes() {
+        return Collections.unmodifiableList(Arrays.asList(nodes.names));
+    }
+
+    /**
+     * equal weights:highest mixed value wins,no floating point.the loop is scalar,the running
+     * argmax branches on every score so C2 does not vectorize it,it only saves the Math.log and
+     * division of the weighted path
+     */
+    private static int selectUniform(Nodes nodes, int hash) {
+        long key = spread(hash);
+        long[] seeds = nodes.seeds;
+        int best = 0;
+        long bestScore = Long.MIN_VALUE;
+        for (int i = 0; i < seeds.length; i++) {
+            // flip the sign bit so signed comparison orders unsigned values
+            long score = mix(seeds[i] ^ key) ^ Long.MIN_VALUE;
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * weighted:highest -weight / ln(u) wins,u uniform in (0,1),scalar like the uniform path
+     */
+    private static int selectWeighted(Nodes nodes, int hash) {
+        long key = spread(hash);
+        long[] seeds = nodes.seeds;
+        double[] weights = nodes.weights;
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < seeds.length; i++) {
+            double u = ((mix(seeds[i] ^ key) >>> 11) + 0.5) * 0x1.0p-53;
+            double score = -weights[i] / Math.log(u);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * build scoring arrays and swap them in,caller must hold this
+     */
+    private void refresh() {
+        nodes = Nodes.of(realServerNodes, hash);
+    }
+
+    /**
+     * spread 32 bits hash to 64 bits
+     */
+    private static long spread(int hash) {
+        return (hash & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * splitmix64 finalizer
+     */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    private static void checkWeight(int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive!");
+        }
+    }
+
+    /**
+     * immutable scoring arrays,index:node ordinal
+     */
+    static final class Nodes {
+
+        final String[] names;
+
+        private final long[] seeds;
+
+        private final double[] weights;
+
+        /**
+         * all weights are equal
+         */
+        private final boolean uniform;
+
+        Nodes(String[] names, double[] weights, Hash hash) {
+            this.names = names;
+            this.seeds = new long[names.length];
+            this.weights = weights;
+            boolean uniform = true;
+            for (int i = 0; i < names.length; i++) {
+                seeds[i] = mix(spread(hash.getHash(names[i])));
+                uniform &= weights[i] == weights[0];
+            }
+            this.uniform = uniform;
+        }
+
+        /**
+         * build scoring arrays of weighted nodes
+         *
+         * @param weightedNodes nodes,key:node/value:weight
+         * @param hash          hash function
+         * @return scoring arrays
+         */
+        static Nodes of(Map<String, Integer> weightedNodes, Hash hash) {
+            String[] names = weightedNodes.keySet().toArray(new String[0]);
+            double[] weights = new double[names.length];
+            for (int i = 0; i < names.length; i++) {
+                weights[i] = weightedNodes.get(names[i]);
+            }
+            return new Nodes(names, weights, hash);
+        }
+
+        /**
+         * select the node with the highest score
+         *
+         * @param hash hash of node
+         * @return node ordinal
+         */
+        int select(int hash) {
+            if (names.length == 0) {
+                throw new NoSuchElementException("No server node!");
+            }
+            return uniform ? selectUniform(this, hash) : selectWeighted(this, hash);
+        }
+    }
+}
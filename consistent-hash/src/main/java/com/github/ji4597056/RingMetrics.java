@@ -0,0 +1,223 @@
+package com.github.ji4597056;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lookup metrics of a ring:lookups of every real node and a latency histogram,counters are striped
+ * {@link LongAdder}s so recording does not contend,read them with {@link #snapshot()} while traffic
+ * goes on
+ *
+ * @author Jeffrey
+ * @since 2018/03/28 10:50
+ */
+public class RingMetrics {
+
+    /**
+     * latency histogram buckets,bucket i counts latencies in [2^i,2^(i+1)) nanoseconds
+     */
+    private static final int LATENCY_BUCKETS = 40;
+
+    /**
+     * ring
+     */
+    private final ConsistentHashingWithVirtualNode ring;
+
+    /**
+     * lookups of every real node ever seen,key:node/value:lookups
+     */
+    private final ConcurrentMap<String, LongAdder> lookups = new ConcurrentHashMap<>();
+
+    /**
+     * latency histogram
+     */
+    private final LongAdder[] latencies = new LongAdder[LATENCY_BUCKETS];
+
+    /**
+     * lookup counters of the current ring snapshot,resolved once per snapshot
+     */
+    private volatile SnapshotCounters snapshotCounters = new SnapshotCounters(RingSnapshot.EMPTY,
+            new LongAdder[0]);
+
+    RingMetrics(ConsistentHashingWithVirtualNode ring) {
+        this.ring = ring;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            latencies[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * record a lookup
+     *
+     * @param snapshot ring snapshot of the lookup
+     * @param owner    real node ordinal found
+     * @param start    {@link System#nanoTime()} when lookup started,0 if unknown
+     */
+    void record(RingSnapshot snapshot, int owner, long start) {
+        SnapshotCounters counters = snapshotCounters;
+        if (counters.ring != snapshot) {
+            counters = resolve(snapshot);
+        }
+        counters.lookups[owner].increment();
+        if (start != 0) {
+            long latency = System.nanoTime() - start;
+            int bucket = 63 - Long.numberOfLeadingZeros(Math.max(latency, 1));
+            latencies[Math.min(bucket, LATENCY_BUCKETS - 1)].increment();
+        }
+    }
+
+    /**
+     * take a snapshot of metrics
+     *
+     * @return metrics snapshot
+     */
+    public Snapshot snapshot() {
+        RingSnapshot snapshot = ring.snapshot();
+        double[] ownership = snapshot.getOwnership(ring.getHashFunction());
+        Map<String, Long> nodeLookups = new LinkedHashMap<>();
+        Map<String, Double> nodeOwnership = new LinkedHashMap<>();
+        for (int i = 0; i < snapshot.nodes.length; i++) {
+            LongAdder counter = lookups.get(snapshot.nodes[i]);
+            nodeLookups.put(snapshot.nodes[i], counter == null ? 0 : counter.sum());
+            nodeOwnership.put(snapshot.nodes[i], ownership[i]);
+        }
+        long[] histogram = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            histogram[i] = latencies[i].sum();
+        }
+        return new Snapshot(nodeLookups, nodeOwnership, histogram);
+    }
+
+    /**
+     * reset lookups and latencies
+     */
+    public void reset() {
+        lookups.values().forEach(LongAdder::reset);
+        for (LongAdder latency : latencies) {
+            latency.reset();
+        }
+    }
+
+    private SnapshotCounters resolve(RingSnapshot snapshot) {
+        LongAdder[] counters = new LongAdder[snapshot.nodes.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = lookups.computeIfAbsent(snapshot.nodes[i], node -> new LongAdder());
+        }
+        SnapshotCounters snapshotCounters = new SnapshotCounters(snapshot, counters);
+        this.snapshotCounters = snapshotCounters;
+        return snapshotCounters;
+    }
+
+    /**
+     * lookup counters of a ring snapshot,index:node ordinal
+     */
+    private static final class SnapshotCounters {
+
+        private final RingSnapshot ring;
+
+        private final LongAdder[] lookups;
+
+        private SnapshotCounters(RingSnapshot ring, LongAdder[] lookups) {
+            this.ring = ring;
+            this.lookups = lookups;
+        }
+    }
+
+    /**
+     * immutable metrics snapshot
+     */
+    public static final class Snapshot {
+
+        /**
+         * lookups of every real node
+         */
+        private final Map<String, Long> lookups;
+
+        /**
+         * fraction of the hash space owned by every real node,measured over the range the ring's
+         * hash function produces
+         */
+        private final Map<String, Double> ownership;
+
+        /**
+         * latency histogram,bucket i counts latencies in [2^i,2^(i+1)) nanoseconds
+         */
+        private final long[] latencyHistogram;
+
+        private Snapshot(Map<String, Long> lookups, Map<String, Double> ownership,
+                long[] latencyHistogram) {
+            this.lookups = Collections.unmodifiableMap(lookups);
+            this.ownership = Collections.unmodifiableMap(ownership);
+            this.latencyHistogram = latencyHistogram;
+        }
+
+        public Map<String, Long> getLookups() {
+            return lookups;
+        }
+
+        public Map<String, Double> getOwnership() {
+            return ownership;
+        }
+
+        public long[] getLatencyHistogram() {
+            return latencyHistogram.clone();
+        }
+
+        /**
+         * mean lookups of real nodes
+         *
+         * @return mean
+         */
+        public double getMeanLoad() {
+            return lookups.values().stream().mapToLong(Long::longValue).average().orElse(0);
+        }
+
+        /**
+         * standard deviation of lookups of real nodes
+         *
+         * @return standard deviation
+         */
+        public double getLoadStandardDeviation() {
+            double mean = getMeanLoad();
+            return Math.sqrt(lookups.values().stream()
+                    .mapToDouble(load -> (load - mean) * (load - mean)).average().orElse(0));
+        }
+
+        /**
+         * max lookups of real nodes divided by mean,1 is perfectly balanced
+         *
+         * @return max/mean ratio
+         */
+        public double getMaxMeanRatio() {
+            double mean = getMeanLoad();
+            long max = lookups.values().stream().mapToLong(Long::longValue).max().orElse(0);
+            return mean == 0 ? 0 : max / mean;
+        }
+
+        /**
+         * upper bound of latency percentile
+         *
+         * @param percentile percentile,eg:0.99
+         * @return latency nanoseconds,upper bound of the histogram bucket
+         */
+        public long getLatencyPercentile(double percentile) {
+            long total = 0;
+            for (long count : latencyHistogram) {
+                total += count;
+            }
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < latencyHistogram.length; i++) {
+                seen += latencyHistogram[i];
+                if (seen >= rank && seen > 0) {
+                    return 1L << (i + 1);
+                }
+            }
+            return 0;
+        }
+    }
+}
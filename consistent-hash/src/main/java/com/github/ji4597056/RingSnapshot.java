@@ -0,0 +1,429 @@
+package com.github.ji4597056;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * immutable ring snapshot,virtual node hashes sorted in a primitive array with a parallel array of
+ * real node ordinals,so a lookup is a binary search without boxing or string work
+ *
+ * @author Jeffrey
+ * @since 2018/03/08 10:15
+ */
+final class RingSnapshot {
+
+    /**
+     * source of snapshot versions
+     */
+    private static final AtomicInteger VERSIONS = new AtomicInteger();
+
+    /**
+     * empty ring
+     */
+    static final RingSnapshot EMPTY = new RingSnapshot(new String[0], new int[0], new int[0],
+            new int[0]);
+
+    /**
+     * most replicas deduplicated by scanning the replicas already found
+     */
+    private static final int MAX_SCANNED_REPLICAS = 16;
+
+    /**
+     * version of snapshot,unique among snapshots built in this jvm
+     */
+    final int version = VERSIONS.incrementAndGet();
+
+    /**
+     * real server nodes,index:node ordinal
+     */
+    final String[] nodes;
+
+    /**
+     * real server node weights,index:node ordinal
+     */
+    final int[] weights;
+
+    /**
+     * sum of weights
+     */
+    final long totalWeight;
+
+    /**
+     * virtual server node hashes,sorted ascending
+     */
+    final int[] hashes;
+
+    /**
+     * real node ordinal of every virtual server node,parallel to hashes
+     */
+    final int[] owners;
+
+    /**
+     * virtual server nodes whose hash is already taken by another virtual server node
+     */
+    final int collisions;
+
+    /**
+     * real nodes numbers owning at least one virtual server node
+     */
+    final int distinctOwners;
+
+    /**
+     * successor table,next position clockwise whose real node differs from the real node of the
+     * position,one int per position,built lazily
+     */
+    private volatile int[] successors;
+
+    RingSnapshot(String[] nodes, int[] weights, int[] hashes, int[] owners) {
+        this.nodes = nodes;
+        this.weights = weights;
+        this.totalWeight = Arrays.stream(weights).asLongStream().sum();
+        this.hashes = hashes;
+        this.owners = owners;
+        boolean[] owned = new boolean[nodes.length];
+        int distinct = 0;
+        for (int owner : owners) {
+            if (!owned[owner]) {
+                owned[owner] = true;
+                distinct++;
+            }
+        }
+        this.distinctOwners = distinct;
+        int collided = 0;
+        for (int i = 1; i < hashes.length; i++) {
+            if (hashes[i] == hashes[i - 1]) {
+                collided++;
+            }
+        }
+        this.collisions = collided;
+    }
+
+    /**
+     * build snapshot from virtual server node hashes,colliding virtual nodes all stay in the ring
+     * and the real node with the smallest name owns the shared hash
+     *
+     * @param realNodes    real server nodes,key:node/value:weight
+     * @param virtualNodes virtual server node hashes,key:node/value:hash of every virtual node
+     * @return ring snapshot
+     */
+    static RingSnapshot of(Map<String, Integer> realNodes, Map<String, int[]> virtualNodes) {
+        String[] nodes = new String[realNodes.size()];
+        int[] weights = new int[realNodes.size()];
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : realNodes.entrySet()) {
+            int ordinal = size++;
+            nodes[ordinal] = entry.getKey();
+            weights[ordinal] = entry.getValue();
+        }
+        // high 32 bits:hash,low 32 bits:owner ordinal
+        long[] virtualHashes = new long[virtualNodes.values().stream().mapToInt(h -> h.length)
+                .sum()];
+        int index = 0;
+        for (int ordinal = 0; ordinal < nodes.length; ordinal++) {
+            for (int hash : virtualNodes.get(nodes[ordinal])) {
+                virtualHashes[index++] = (long) hash << 32 | ordinal;
+            }
+        }
+        Arrays.sort(virtualHashes);
+        int[] hashes = new int[virtualHashes.length];
+        int[] owners = new int[virtualHashes.length];
+        for (int i = 0; i < virtualHashes.length; i++) {
+            hashes[i] = (int) (virtualHashes[i] >> 32);
+            owners[i] = (int) virtualHashes[i];
+        }
+        orderCollisions(nodes, hashes, owners);
+        return new RingSnapshot(nodes, weights, hashes, owners);
+    }
+
+    /**
+     * order owners of equal hashes by real node name,so the owner of a collision does not depend
+     * on insertion order
+     *
+     * @param nodes  real server nodes
+     * @param hashes sorted hashes
+     * @param owners owners,parallel to hashes
+     */
+    private static void orderCollisions(String[] nodes, int[] hashes, int[] owners) {
+        for (int start = 0, end; start < hashes.length; start = end) {
+            end = start + 1;
+            while (end < hashes.length && hashes[end] == hashes[start]) {
+                end++;
+            }
+            if (end - start > 1) {
+                Integer[] run = new Integer[end - start];
+                for (int i = 0; i < run.length; i++) {
+                    run[i] = owners[start + i];
+                }
+                Arrays.sort(run, Comparator.comparing(owner -> nodes[owner]));
+                for (int i = 0; i < run.length; i++) {
+                    owners[start + i] = run[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * hash ranges whose owner differs between two snapshots,computed in one merge of both sorted
+     * hash arrays
+     *
+     * @param before snapshot before membership change
+     * @param after  snapshot after membership change
+     * @return moved ranges,adjacent ranges with the same owners are merged
+     */
+    static List<MovedRange> diff(RingSnapshot before, RingSnapshot after) {
+        List<MovedRange> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        long start = Integer.MIN_VALUE;
+        while (start <= Integer.MAX_VALUE) {
+            // every hash in [start,end] maps to position i before and position j after
+            long end = Integer.MAX_VALUE;
+            if (i < before.hashes.length) {
+                end = Math.min(end, before.hashes[i]);
+            }
+            if (j < after.hashes.length) {
+                end = Math.min(end, after.hashes[j]);
+            }
+            String from = before.ownerAt(i);
+            String to = after.ownerAt(j);
+            if (!Objects.equals(from, to)) {
+                int last = result.size() - 1;
+                MovedRange previous = last < 0 ? null : result.get(last);
+                if (previous != null && previous.getEndHash() == start
+                        && Objects.equals(previous.getFromNode(), from)
+                        && Objects.equals(previous.getToNode(), to)) {
+                    result.set(last, new MovedRange(previous.getStartHash(), end + 1, from, to));
+                } else {
+                    result.add(new MovedRange(start, end + 1, from, to));
+                }
+            }
+            while (i < before.hashes.length && before.hashes[i] <= end) {
+                i++;
+            }
+            while (j < after.hashes.length && after.hashes[j] <= end) {
+                j++;
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    /**
+     * real node owning position,position size wraps to 0
+     *
+     * @param position position
+     * @return real node,null if ring is empty
+     */
+    private String ownerAt(int position) {
+        if (hashes.length == 0) {
+            return null;
+        }
+        return nodes[owners[position == hashes.length ? 0 : position]];
+    }
+
+    /**
+     * get position of the first virtual server node clockwise from hash
+     *
+     * @param hash hash
+     * @return position,0 if hash is larger than every virtual server node
+     */
+    int indexOf(int hash) {
+        int low = 0;
+        int high = hashes.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (hashes[mid] < hash) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low == hashes.length ? 0 : low;
+    }
+
+    /**
+     * get real node ordinals of many hashes in one pass over the ring,hashes are sorted and every
+     * search gallops forward from the previous position
+     *
+     * @param hashes hashes
+     * @return real node ordinals,parallel to hashes
+     */
+    int[] getOwners(int[] hashes) {
+        if (this.hashes.length == 0) {
+            throw new NoSuchElementException("No server node in ring!");
+        }
+        // high 32 bits:hash,low 32 bits:index,so sorting keeps signed hash order
+        long[] probes = new long[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            probes[i] = (long) hashes[i] << 32 | i;
+        }
+        Arrays.sort(probes);
+        int[] result = new int[hashes.length];
+        int position = 0;
+        for (long probe : probes) {
+            position = gallop((int) (probe >> 32), position);
+            result[(int) probe] = owners[position == this.hashes.length ? 0 : position];
+        }
+        return result;
+    }
+
+    /**
+     * find position of the first virtual server node not less than hash,starting at from
+     *
+     * @param hash hash
+     * @param from start position,hashes before it are less than hash
+     * @return position,size if hash is larger than every virtual server node
+     */
+    private int gallop(int hash, int from) {
+        int bound = 1;
+        int low = from;
+        while (from + bound - 1 < hashes.length && hashes[from + bound - 1] < hash) {
+            low = from + bound;
+            bound <<= 1;
+        }
+        int high = Math.min(from + bound - 1, hashes.length) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (hashes[mid] < hash) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * get first distinct real nodes clockwise from hash
+     *
+     * @param hash     hash
+     * @param replicas replicas numbers
+     * @return real node ordinals,at most distinct owners numbers
+     */
+    int[] getReplicas(int hash, int replicas) {
+        if (hashes.length == 0) {
+            throw new NoSuchElementException("No server node in ring!");
+        }
+        int width = Math.min(replicas, distinctOwners);
+        int[] result = new int[width];
+        int[] next = successors();
+        // few replicas are deduplicated against the result,many against a bit per real node
+        long[] chosen = width > MAX_SCANNED_REPLICAS ? new long[(nodes.length + 63) >>> 6] : null;
+        // hop from run to run of the same real node,skipping real nodes already chosen
+        int filled = 0;
+        for (int position = indexOf(hash); ; position = next[position]) {
+            int owner = owners[position];
+            if (chosen == null ? contains(result, filled, owner)
+                    : (chosen[owner >>> 6] & 1L << owner) != 0) {
+                continue;
+            }
+            if (chosen != null) {
+                chosen[owner >>> 6] |= 1L << owner;
+            }
+            result[filled++] = owner;
+            if (filled == width) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * get successor table
+     *
+     * @return successor table
+     */
+    private int[] successors() {
+        int[] table = successors;
+        if (table != null) {
+            return table;
+        }
+        int size = hashes.length;
+        table = new int[size];
+        // start right before a change of real node,so the successor of the next position is known
+        int last = size - 1;
+        while (last > 0 && owners[last] == owners[last == size - 1 ? 0 : last + 1]) {
+            last--;
+        }
+        int successor = last == size - 1 ? 0 : last + 1;
+        for (int i = 0, position = last; i < size; i++) {
+            int following = position == size - 1 ? 0 : position + 1;
+            if (owners[following] != owners[position]) {
+                successor = following;
+            }
+            table[position] = successor;
+            position = position == 0 ? size - 1 : position - 1;
+        }
+        successors = table;
+        return table;
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * get real server node from hash
+     *
+     * @param hash hash
+     * @return real node
+     */
+    String getServer(int hash) {
+        return nodes[getOwner(hash)];
+    }
+
+    /**
+     * get real node ordinal from hash
+     *
+     * @param hash hash
+     * @return real node ordinal
+     */
+    int getOwner(int hash) {
+        if (hashes.length == 0) {
+            throw new NoSuchElementException("No server node in ring!");
+        }
+        return owners[indexOf(hash)];
+    }
+
+    /**
+     * get fraction of the hash space owned by every real node,over the range the hash function
+     * produces
+     *
+     * @param hash hash function of the ring
+     * @return ownership,index:node ordinal
+     */
+    double[] getOwnership(Hash hash) {
+        long min = hash.getMinHash();
+        long max = hash.getMaxHash();
+        double space = max - min + 1;
+        double[] ownership = new double[nodes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            long high = Math.min(Math.max(hashes[i], min), max);
+            // position 0 also owns the wrapped range after the last virtual server node
+            long range = i == 0
+                    ? high - min + 1 + max - Math.min(Math.max(hashes[hashes.length - 1], min), max)
+                    : high - Math.min(Math.max(hashes[i - 1], min), max);
+            ownership[owners[i]] += range / space;
+        }
+        return ownership;
+    }
+
+    /**
+     * virtual server nodes size
+     *
+     * @return size
+     */
+    int size() {
+        return hashes.length;
+    }
+}
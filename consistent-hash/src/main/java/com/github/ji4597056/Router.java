@@ -0,0 +1,52 @@
+package com.github.ji4597056;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * route a node to one of the real server nodes
+ *
+ * @author Jeffrey
+ * @since 2018/03/19 10:12
+ */
+public interface Router {
+
+    /**
+     * get server from node
+     *
+     * @param node node
+     * @return real node
+     */
+    String getServer(String node);
+
+    /**
+     * get real server nodes
+     *
+     * @return real server nodes
+     */
+    List<String> getRealServerNodes();
+
+    /**
+     * count nodes whose server changes after a membership change
+     *
+     * @param nodes            sample nodes
+     * @param membershipChange membership change,eg:{@code () -> router.addServerNode("10.0.0.9")}
+     * @return moved nodes count
+     */
+    default int countMovedNodes(Collection<String> nodes, Runnable membershipChange) {
+        String[] servers = new String[nodes.size()];
+        int index = 0;
+        for (String node : nodes) {
+            servers[index++] = getServer(node);
+        }
+        membershipChange.run();
+        int moved = 0;
+        index = 0;
+        for (String node : nodes) {
+            if (!servers[index++].equals(getServer(node))) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+}
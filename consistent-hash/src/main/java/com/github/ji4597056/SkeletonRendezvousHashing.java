@@ -0,0 +1,224 @@
+package com.github.ji4597056;
+
+import com.github.ji4597056.RendezvousHashing.Nodes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * skeleton-based hierarchical rendezvous hashing for large clusters
+ * <p>
+ * real nodes are spread over a fixed number of clusters by hash,a node first picks a cluster by
+ * rendezvous hashing weighted with the cluster's total weight,then a real node inside it.a lookup
+ * scores clusters + cluster members instead of every real node,eg:about 2·sqrt(n) for n real nodes
+ * and cluster size sqrt(n).the price is that a membership change also reweights its cluster,so
+ * about twice the changed node's share of nodes move
+ * <p>
+ * lookups read one immutable skeleton snapshot,membership changes are serialized on the instance
+ * and publish a new snapshot(copy-on-write)
+ *
+ * @author Jeffrey
+ * @since 2018/04/10 15:40
+ */
+public class SkeletonRendezvousHashing implements Router {
+
+    /**
+     * cluster name prefix
+     */
+    private static final String CLUSTER_PREFIX = "##cluster";
+
+    /**
+     * members of every cluster,key:node/value:weight,index:cluster ordinal,guarded by this
+     */
+    private final List<Map<String, Integer>> clusters = new ArrayList<>();
+
+    /**
+     * real server nodes,key:node/value:weight,guarded by this
+     */
+    private final Map<String, Integer> realServerNodes = new LinkedHashMap<>();
+
+    /**
+     * immutable snapshot used by lookups
+     */
+    private volatile Skeleton skeleton;
+
+    /**
+     * hash function
+     */
+    private final Hash hash;
+
+    /**
+     * @param weightedNodes real nodes,key:node/value:weight
+     * @param clusterSize   expected real nodes numbers per cluster,clusters numbers is fixed to
+     *                      ceil(real nodes / cluster size)
+     * @param hash          hash function
+     */
+    public SkeletonRendezvousHashing(Map<String, Integer> weightedNodes, int clusterSize,
+            Hash hash) {
+        if (clusterSize <= 0) {
+            throw new IllegalArgumentException("Cluster size must be positive!");
+        }
+        this.hash = hash;
+        int clusterNum = Math.max(1, (weightedNodes.size() + clusterSize - 1) / clusterSize);
+        Nodes[] members = new Nodes[clusterNum];
+        for (int i = 0; i < clusterNum; i++) {
+            clusters.add(new LinkedHashMap<>());
+        }
+        weightedNodes.forEach((node, weight) -> {
+            checkWeight(weight);
+            realServerNodes.put(node, weight);
+            clusters.get(clusterOf(node)).put(node, weight);
+        });
+        for (int i = 0; i < clusterNum; i++) {
+            members[i] = Nodes.of(clusters.get(i), hash);
+        }
+        this.skeleton = newSkeleton(members);
+    }
+
+    public SkeletonRendezvousHashing(List<String> realNodes, int clusterSize, Hash hash) {
+        this(withDefaultWeight(realNodes), clusterSize, hash);
+    }
+
+    @Override
+    public String getServer(String node) {
+        int hash = this.hash.getHash(node);
+        Skeleton skeleton = this.skeleton;
+        Nodes members = skeleton.members[skeleton.clusterOf[skeleton.top.select(hash)]];
+        return members.names[members.select(hash)];
+    }
+
+    /**
+     * add server node with default weight
+     *
+     * @param serverNode server node
+     */
+    public void addServerNode(String serverNode) {
+        addServerNode(serverNode, 1);
+    }
+
+    /**
+     * add server node or change its weight
+     *
+     * @param serverNode server node
+     * @param weight     weight
+     */
+    public synchronized void addServerNode(String serverNode, int weight) {
+        checkWeight(weight);
+        realServerNodes.put(serverNode, weight);
+        int index = clusterOf(serverNode);
+        clusters.get(index).put(serverNode, weight);
+        refresh(index);
+    }
+
+    /**
+     * remove server node
+     *
+     * @param serverNode server node
+     */
+    public synchronized void removeServerNode(String serverNode) {
+        if (realServerNodes.remove(serverNode) == null) {
+            return;
+        }
+        int index = clusterOf(serverNode);
+        clusters.get(index).remove(serverNode);
+        refresh(index);
+    }
+
+    @Override
+    public synchronized List<String> getRealServerNodes() {
+        return Collections.unmodifiableList(new ArrayList<>(realServerNodes.keySet()));
+    }
+
+    /**
+     * clusters numbers
+     *
+     * @return clusters numbers
+     */
+    public int getClusterNum() {
+        return clusters.size();
+    }
+
+    /**
+     * rebuild members of one cluster and the top level,caller must hold this
+     *
+     * @param index cluster ordinal
+     */
+    private void refresh(int index) {
+        Nodes[] members = skeleton.members.clone();
+        members[index] = Nodes.of(clusters.get(index), hash);
+        skeleton = newSkeleton(members);
+    }
+
+    /**
+     * build skeleton whose top level scores every non-empty cluster by its total weight
+     *
+     * @param members members of every cluster
+     * @return skeleton
+     */
+    private Skeleton newSkeleton(Nodes[] members) {
+        int size = 0;
+        for (int i = 0; i < members.length; i++) {
+            if (members[i].names.length > 0) {
+                size++;
+            }
+        }
+        String[] names = new String[size];
+        double[] weights = new double[size];
+        int[] clusterOf = new int[size];
+        size = 0;
+        for (int i = 0; i < members.length; i++) {
+            if (members[i].names.length > 0) {
+                names[size] = CLUSTER_PREFIX + i;
+                weights[size] = clusters.get(i).values().stream().mapToLong(Integer::longValue)
+                        .sum();
+                clusterOf[size++] = i;
+            }
+        }
+        return new Skeleton(new Nodes(names, weights, hash), clusterOf, members);
+    }
+
+    private int clusterOf(String serverNode) {
+        return Math.floorMod(hash.getHash(serverNode + CLUSTER_PREFIX), clusters.size());
+    }
+
+    private static void checkWeight(int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive!");
+        }
+    }
+
+    private static Map<String, Integer> withDefaultWeight(List<String> realNodes) {
+        Map<String, Integer> weightedNodes = new LinkedHashMap<>();
+        realNodes.forEach(node -> weightedNodes.put(node, 1));
+        return weightedNodes;
+    }
+
+    /**
+     * immutable skeleton snapshot
+     */
+    private static final class Skeleton {
+
+        /**
+         * top level,scores non-empty clusters
+         */
+        private final Nodes top;
+
+        /**
+         * cluster ordinal of every top level node
+         */
+        private final int[] clusterOf;
+
+        /**
+         * members of every cluster,index:cluster ordinal
+         */
+        private final Nodes[] members;
+
+        private Skeleton(Nodes top, int[] clusterOf, Nodes[] members) {
+            this.top = top;
+            this.clusterOf = clusterOf;
+            this.members = members;
+        }
+    }
+}
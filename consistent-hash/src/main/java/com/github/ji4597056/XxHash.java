@@ -0,0 +1,216 @@
+package com.github.ji4597056;
+
+/**
+ * xxhash_64,seed 0,truncated to the low 32 bits
+ * <p>
+ * strings are utf-8 encoded and binary keys are hashed in place
+ *
+ * @author Jeffrey
+ * @since 2018/03/13 16:05
+ */
+public class XxHash implements Hash {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long P3 = 0x165667B19E3779F9L;
+
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    @Override
+    public int getHash(String key) {
+        return (int) hash64(key);
+    }
+
+    @Override
+    public int getHash(byte[] key, int offset, int length) {
+        return (int) hash64(key, offset, length);
+    }
+
+    @Override
+    public int getHash(long key) {
+        long h = P5 + Long.BYTES;
+        h ^= round(0, key);
+        h = Long.rotateLeft(h, 27) * P1 + P4;
+        return (int) avalanche(h);
+    }
+
+    /**
+     * 64 bits hash of the utf-8 bytes of key
+     *
+     * @param key key
+     * @return hash
+     */
+    public long hash64(String key) {
+        long v1 = P1 + P2;
+        long v2 = P2;
+        long v3 = 0;
+        long v4 = -P1;
+        // 8 bytes words of the current 32 bytes stripe
+        long w0 = 0;
+        long w1 = 0;
+        long w2 = 0;
+        long w3 = 0;
+        int length = 0;
+        // pending utf-8 bytes,little-endian
+        long buffer = 0;
+        int bits = 0;
+        // 32-bit chunks of the current stripe
+        int chunks = 0;
+        for (int i = 0; i < key.length(); ) {
+            long encoded = HashInput.encode(key, i);
+            i += HashInput.chars(encoded);
+            buffer |= (encoded & 0xffffffffL) << bits;
+            bits += HashInput.length(encoded) << 3;
+            if (bits >= 32) {
+                long chunk = (buffer & 0xffffffffL) << ((chunks & 1) << 5);
+                switch (chunks >>> 1) {
+                    case 0:
+                        w0 |= chunk;
+                        break;
+                    case 1:
+                        w1 |= chunk;
+                        break;
+                    case 2:
+                        w2 |= chunk;
+                        break;
+                    default:
+                        w3 |= chunk;
+                        break;
+                }
+                buffer >>>= 32;
+                bits -= 32;
+                length += 4;
+                if (++chunks == 8) {
+                    v1 = round(v1, w0);
+                    v2 = round(v2, w1);
+                    v3 = round(v3, w2);
+                    v4 = round(v4, w3);
+                    w0 = 0;
+                    w1 = 0;
+                    w2 = 0;
+                    w3 = 0;
+                    chunks = 0;
+                }
+            }
+        }
+        int tail = (chunks << 2) + (bits >>> 3);
+        length += bits >>> 3;
+        long chunk = buffer << ((chunks & 1) << 5);
+        switch (chunks >>> 1) {
+            case 0:
+                w0 |= chunk;
+                break;
+            case 1:
+                w1 |= chunk;
+                break;
+            case 2:
+                w2 |= chunk;
+                break;
+            default:
+                w3 |= chunk;
+                break;
+        }
+        long h = length >= 32 ? merge(v1, v2, v3, v4) : P5;
+        h += length;
+        for (int j = 0; j < tail >>> 3; j++) {
+            h = word(h, j == 0 ? w0 : j == 1 ? w1 : j == 2 ? w2 : w3);
+        }
+        long last = (tail >>> 3) == 0 ? w0 : (tail >>> 3) == 1 ? w1 : (tail >>> 3) == 2 ? w2 : w3;
+        int remaining = tail & 7;
+        if (remaining >= 4) {
+            h = quad(h, last & 0xffffffffL);
+            last >>>= 32;
+            remaining -= 4;
+        }
+        for (; remaining > 0; remaining--, last >>>= 8) {
+            h = single(h, last & 0xff);
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * 64 bits hash of bytes
+     *
+     * @param key    key
+     * @param offset offset of the first byte
+     * @param length bytes length
+     * @return hash
+     */
+    public long hash64(byte[] key, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        long h;
+        if (length >= 32) {
+            long v1 = P1 + P2;
+            long v2 = P2;
+            long v3 = 0;
+            long v4 = -P1;
+            for (int limit = end - 32; i <= limit; i += 32) {
+                v1 = round(v1, HashInput.getLong(key, i));
+                v2 = round(v2, HashInput.getLong(key, i + 8));
+                v3 = round(v3, HashInput.getLong(key, i + 16));
+                v4 = round(v4, HashInput.getLong(key, i + 24));
+            }
+            h = merge(v1, v2, v3, v4);
+        } else {
+            h = P5;
+        }
+        h += length;
+        for (; i + 8 <= end; i += 8) {
+            h = word(h, HashInput.getLong(key, i));
+        }
+        if (i + 4 <= end) {
+            h = quad(h, HashInput.getInt(key, i) & 0xffffffffL);
+            i += 4;
+        }
+        for (; i < end; i++) {
+            h = single(h, key[i] & 0xff);
+        }
+        return avalanche(h);
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        acc *= P1;
+        return acc;
+    }
+
+    private static long merge(long v1, long v2, long v3, long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                + Long.rotateLeft(v4, 18);
+        h = (h ^ round(0, v1)) * P1 + P4;
+        h = (h ^ round(0, v2)) * P1 + P4;
+        h = (h ^ round(0, v3)) * P1 + P4;
+        h = (h ^ round(0, v4)) * P1 + P4;
+        return h;
+    }
+
+    private static long word(long h, long input) {
+        h ^= round(0, input);
+        return Long.rotateLeft(h, 27) * P1 + P4;
+    }
+
+    private static long quad(long h, long input) {
+        h ^= input * P1;
+        return Long.rotateLeft(h, 23) * P2 + P3;
+    }
+
+    private static long single(long h, long input) {
+        h ^= input * P5;
+        return Long.rotateLeft(h, 11) * P1;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
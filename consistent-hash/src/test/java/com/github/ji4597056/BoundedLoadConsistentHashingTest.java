@@ -0,0 +1,136 @@
+package com.github.ji4597056;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * BoundedLoadConsistentHashingTest
+ *
+ * @author Jeffrey
+ * @since 2018/03/21 17:45
+ */
+public class BoundedLoadConsistentHashingTest {
+
+    private List<String> realServerNodes = Lists
+        .newArrayList("172.0.0.1", "172.0.0.2", "172.0.0.3", "172.0.0.4", "172.0.0.5");
+
+    @Test
+    public void testAcquire() {
+        BoundedLoadConsistentHashing consistentHashing = new BoundedLoadConsistentHashing(
+            new ConsistentHashingWithVirtualNode(realServerNodes, 10), 0.25);
+        // hot node,every acquire lands on the same virtual node
+        IntStream.range(0, 1000).forEach(i -> consistentHashing.acquire("hot"));
+        long max = (long) Math.ceil(1.25 * 1000 / 5);
+        consistentHashing.getLoads().values()
+            .forEach(load -> Assert.assertTrue(load + " > " + max, load <= max));
+        Assert.assertEquals(
+            consistentHashing.getLoads().values().stream().mapToLong(Long::longValue).sum(), 1000);
+    }
+
+    @Test
+    public void testRelease() {
+        BoundedLoadConsistentHashing consistentHashing = new BoundedLoadConsistentHashing(
+            new ConsistentHashingWithVirtualNode(realServerNodes, 10), 0.25);
+        String server = consistentHashing.getServer("key");
+        BoundedLoadConsistentHashing.Lease lease = consistentHashing.acquire("key");
+        Assert.assertEquals(lease.getServer(), server);
+        Assert.assertEquals(consistentHashing.getLoad(server), 1);
+        consistentHashing.release(lease);
+        Assert.assertEquals(consistentHashing.getLoad(server), 0);
+    }
+
+    @Test
+    public void testConcurrentAcquire() throws InterruptedException {
+        ConsistentHashingWithVirtualNode ring = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 10);
+        BoundedLoadConsistentHashing consistentHashing = new BoundedLoadConsistentHashing(ring,
+            0.5);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        IntStream.range(0, 10000).forEach(i -> executor.execute(() -> {
+            BoundedLoadConsistentHashing.Lease lease = consistentHashing.acquire("key-" + i % 10);
+            if (i % 2 == 0) {
+                consistentHashing.release(lease);
+            }
+        }));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(
+            consistentHashing.getLoads().values().stream().mapToLong(Long::longValue).sum(), 5000);
+    }
+
+    @Test
+    public void testAddServerNode() {
+        ConsistentHashingWithVirtualNode ring = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 10);
+        BoundedLoadConsistentHashing consistentHashing = new BoundedLoadConsistentHashing(ring,
+            0.25);
+        IntStream.range(0, 100).forEach(i -> consistentHashing.acquire("key-" + i));
+        ring.addServerNode("172.0.0.6");
+        IntStream.range(0, 100).forEach(i -> consistentHashing.acquire("key-" + i));
+        Assert.assertTrue(consistentHashing.getLoad("172.0.0.6") > 0);
+    }
+
+    @Test
+    public void testRemoveServerNode() {
+        ConsistentHashingWithVirtualNode ring = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 10);
+        BoundedLoadConsistentHashing consistentHashing = new BoundedLoadConsistentHashing(ring,
+            0.25);
+        List<BoundedLoadConsistentHashing.Lease> leases = IntStream.range(0, 100)
+            .mapToObj(i -> consistentHashing.acquire("key-" + i)).collect(Collectors.toList());
+        long removed = consistentHashing.getLoad("172.0.0.1");
+        Assert.assertTrue(removed > 0);
+        ring.removeServerNode("172.0.0.1");
+        // load of the removed server no longer counts,capacity of 4 servers is over 100 - removed
+        Assert.assertEquals(consistentHashing.getCapacity("172.0.0.2"),
+            (long) Math.ceil(1.25 * (100 - removed + 1) / 4));
+        Assert.assertEquals(consistentHashing.getLoad("172.0.0.1"), 0);
+        Assert.assertEquals(consistentHashing.getLoads().size(), 4);
+        // loads taken before the removal do not drain the counter of the server added again
+        ring.addServerNode("172.0.0.1");
+        BoundedLoadConsistentHashing.Lease lease = consistentHashing.acquire("key-0");
+        leases.forEach(consistentHashing::release);
+        Assert.assertEquals(consistentHashing.getTotalLoad(), 1);
+        Assert.assertEquals(consistentHashing.getLoad(lease.getServer()), 1);
+        consistentHashing.release(lease);
+        Assert.assertEquals(consistentHashing.getTotalLoad(), 0);
+    }
+
+    @Test
+    public void testConcurrentRemoveServerNode() throws InterruptedException {
+        ConsistentHashingWithVirtualNode ring = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 10);
+        BoundedLoadConsistentHashing consistentHashing = new BoundedLoadConsistentHashing(ring,
+            0.25);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicBoolean running = new AtomicBoolean(true);
+        // membership keeps changing while leases are taken and released
+        Thread changer = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                String server = realServerNodes.get(i % realServerNodes.size());
+                ring.removeServerNode(server);
+                ring.addServerNode(server);
+            }
+        });
+        changer.start();
+        IntStream.range(0, 20000).forEach(i -> executor.execute(() -> {
+            BoundedLoadConsistentHashing.Lease lease = consistentHashing.acquire("key-" + i);
+            consistentHashing.release(lease);
+        }));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        running.set(false);
+        changer.join();
+        Assert.assertEquals(consistentHashing.getTotalLoad(), 0);
+        Assert.assertEquals(
+            consistentHashing.getLoads().values().stream().mapToLong(Long::longValue).sum(), 0);
+    }
+}
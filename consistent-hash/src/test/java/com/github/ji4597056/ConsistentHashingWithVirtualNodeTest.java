@@ -1,11 +1,23 @@
 package com.github.ji4597056;
 
 import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.junit.Assert;
 import org.junit.Test;
@@ -59,6 +71,333 @@ public class ConsistentHashingWithVirtualNodeTest {
         Assert.assertEquals(consistentHashing.getVirtualServerNodes().size(), 20);
     }
 
+    @Test
+    public void testWeightedServerNode() {
+        Map<String, Integer> weightedNodes = new LinkedHashMap<>();
+        weightedNodes.put("172.0.0.1", 1);
+        weightedNodes.put("172.0.0.2", 8);
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            weightedNodes, 50);
+        Assert.assertEquals(consistentHashing.getVirtualServerNodes().size(), 450);
+        Map<String, Integer> result = new HashMap<>();
+        IntStream.range(0, 90000).forEach(
+            i -> result.merge(consistentHashing.getServer(getRandomNode()), 1, Integer::sum));
+        Assert.assertTrue(result.get("172.0.0.2") > result.get("172.0.0.1") * 4);
+    }
+
+    @Test
+    public void testChangeWeight() {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 5);
+        Map<Integer, String> before = consistentHashing.getVirtualServerNodes();
+        consistentHashing.addServerNode("172.0.0.1", 3);
+        Map<Integer, String> after = consistentHashing.getVirtualServerNodes();
+        Assert.assertEquals(after.size(), 35);
+        // existing virtual nodes are kept
+        Assert.assertTrue(after.entrySet().containsAll(before.entrySet()));
+        consistentHashing.addServerNode("172.0.0.1", 1);
+        Assert.assertEquals(consistentHashing.getVirtualServerNodes(), before);
+        Assert.assertEquals(consistentHashing.getRealServerNodeWeights().get("172.0.0.1"),
+            Integer.valueOf(1));
+    }
+
+    @Test
+    public void testUnchangedMembership() {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 5);
+        RingSnapshot before = consistentHashing.snapshot();
+        // same weight or unknown node does not publish a new snapshot
+        Assert.assertTrue(consistentHashing.addServerNode("172.0.0.1", 1).isEmpty());
+        Assert.assertTrue(consistentHashing.removeServerNode("172.0.0.9").isEmpty());
+        Assert.assertTrue(consistentHashing.applyMembership(Lists.newArrayList("172.0.0.2"),
+            Lists.newArrayList("172.0.0.9")).isEmpty());
+        Assert.assertSame(consistentHashing.snapshot(), before);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroVirtualNodes() {
+        new ConsistentHashingWithVirtualNode(realServerNodes, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeight() {
+        new ConsistentHashingWithVirtualNode(realServerNodes, 5).addServerNode("172.0.0.1", -1);
+    }
+
+    @Test
+    public void testGetServers() {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 100, new MurmurHash());
+        List<String> nodes = IntStream.range(0, 5000).mapToObj(i -> getRandomNode())
+            .collect(Collectors.toList());
+        Map<String, List<String>> servers = consistentHashing.getServers(nodes);
+        Assert.assertEquals(servers.values().stream().mapToInt(List::size).sum(), nodes.size());
+        servers.forEach((server, group) -> group
+            .forEach(node -> Assert.assertEquals(consistentHashing.getServer(node), server)));
+    }
+
+    @Test
+    public void testGetReplicaServers() {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 20);
+        List<Map.Entry<Integer, String>> virtualNodes = new ArrayList<>(
+            consistentHashing.getVirtualServerNodes().entrySet());
+        FnvHash hash = new FnvHash();
+        IntStream.range(0, 1000).forEach(i -> {
+            String node = getRandomNode();
+            // expected:walk the virtual nodes clockwise
+            int start = 0;
+            while (start < virtualNodes.size() && virtualNodes.get(start).getKey() < hash
+                .getHash(node)) {
+                start++;
+            }
+            List<String> expected = new ArrayList<>();
+            for (int j = 0; expected.size() < 3; j++) {
+                String virtualNode = virtualNodes.get((start + j) % virtualNodes.size()).getValue();
+                String server = virtualNode.substring(0, virtualNode.indexOf("##"));
+                if (!expected.contains(server)) {
+                    expected.add(server);
+                }
+            }
+            Assert.assertEquals(expected, consistentHashing.getServers(node, 3));
+        });
+        Assert.assertEquals(consistentHashing.getServers("node", 10).size(), 5);
+        Assert.assertEquals(consistentHashing.getServers("node", 1).get(0),
+            consistentHashing.getServer("node"));
+    }
+
+    @Test
+    public void testGetReplicaServersLargeRing() {
+        List<String> servers = IntStream.range(0, 3000)
+            .mapToObj(i -> "10.0." + i / 256 + "." + i % 256).collect(Collectors.toList());
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            servers, 300, new MurmurHash());
+        IntStream.range(0, 10).forEach(i -> {
+            String node = getRandomNode();
+            // more replicas than distinct owners walk the whole ring
+            List<String> replicas = consistentHashing.getServers(node, 5000);
+            Assert.assertEquals(replicas.size(), 3000);
+            Assert.assertEquals(new HashSet<>(replicas).size(), 3000);
+            Assert.assertEquals(replicas.subList(0, 3), consistentHashing.getServers(node, 3));
+            Assert.assertEquals(replicas.subList(0, 100), consistentHashing.getServers(node, 100));
+        });
+    }
+
+    @Test
+    public void testMovedRanges() {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 20);
+        List<String> nodes = IntStream.range(0, 20000).mapToObj(i -> getRandomNode())
+            .collect(Collectors.toList());
+        assertMovedRanges(consistentHashing, nodes,
+            () -> consistentHashing.addServerNode("172.0.0.6"));
+        assertMovedRanges(consistentHashing, nodes,
+            () -> consistentHashing.removeServerNode("172.0.0.2"));
+        assertMovedRanges(consistentHashing, nodes, () -> consistentHashing
+            .applyMembership(Lists.newArrayList("172.0.0.7", "172.0.0.8"),
+                Lists.newArrayList("172.0.0.1")));
+        List<MovedRange> ranges = consistentHashing.addServerNode("172.0.0.9");
+        ranges.forEach(range -> Assert.assertEquals(range.getToNode(), "172.0.0.9"));
+        Assert.assertTrue(ranges.size() <= 20);
+    }
+
+    private void assertMovedRanges(ConsistentHashingWithVirtualNode consistentHashing,
+        List<String> nodes, Supplier<List<MovedRange>> membershipChange) {
+        FnvHash hash = new FnvHash();
+        Map<String, String> before = new HashMap<>();
+        nodes.forEach(node -> before.put(node, consistentHashing.getServer(node)));
+        List<MovedRange> ranges = membershipChange.get();
+        nodes.forEach(node -> {
+            String from = before.get(node);
+            String to = consistentHashing.getServer(node);
+            Optional<MovedRange> range = ranges.stream()
+                .filter(movedRange -> movedRange.contains(hash.getHash(node))).findFirst();
+            Assert.assertEquals(!from.equals(to), range.isPresent());
+            range.ifPresent(movedRange -> {
+                Assert.assertEquals(from, movedRange.getFromNode());
+                Assert.assertEquals(to, movedRange.getToNode());
+            });
+        });
+    }
+
+    @Test
+    public void testHashCollision() {
+        // 16 distinct hashes only,most virtual nodes collide
+        Hash hash = key -> new FnvHash().getHash(key) & 15;
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 10, hash);
+        Assert.assertEquals(consistentHashing.getCollisionCount(), 50 - 16);
+        ConsistentHashingWithVirtualNode reversed = new ConsistentHashingWithVirtualNode(
+            Lists.reverse(realServerNodes), 10, hash);
+        IntStream.range(0, 1000).mapToObj(i -> getRandomNode()).forEach(node -> Assert
+            .assertEquals(consistentHashing.getServer(node), reversed.getServer(node)));
+        consistentHashing.removeServerNode("172.0.0.1");
+        consistentHashing.removeServerNode("172.0.0.2");
+        IntStream.range(0, 1000).forEach(i -> {
+            String server = consistentHashing.getServer(getRandomNode());
+            Assert.assertTrue(server, !server.equals("172.0.0.1") && !server.equals("172.0.0.2"));
+        });
+        consistentHashing.removeServerNode("172.0.0.3");
+        consistentHashing.removeServerNode("172.0.0.4");
+        Assert.assertEquals(consistentHashing.getServer(getRandomNode()), "172.0.0.5");
+        Assert.assertEquals(consistentHashing.getCollisionCount(),
+            10 - consistentHashing.getVirtualServerNodes().size());
+    }
+
+    @Test
+    public void testMetrics() {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 100);
+        consistentHashing.getServer(getRandomNode());
+        Assert.assertNull(consistentHashing.getMetrics());
+        RingMetrics metrics = consistentHashing.enableMetrics();
+        IntStream.range(0, 10000).forEach(i -> consistentHashing.getServer(getRandomNode()));
+        consistentHashing.addServerNode("172.0.0.6");
+        IntStream.range(0, 10000).forEach(i -> consistentHashing.getServer((long) i));
+        RingMetrics.Snapshot snapshot = metrics.snapshot();
+        Assert.assertEquals(snapshot.getLookups().values().stream().mapToLong(Long::longValue)
+            .sum(), 20000);
+        Assert.assertEquals(snapshot.getOwnership().values().stream().mapToDouble(
+            Double::doubleValue).sum(), 1, 1e-9);
+        // fnv hashes are non-negative,ownership is measured over [0,2^31)
+        Map<String, Double> expected = new HashMap<>();
+        List<Map.Entry<Integer, String>> virtualNodes = new ArrayList<>(
+            consistentHashing.getVirtualServerNodes().entrySet());
+        long previous = virtualNodes.get(virtualNodes.size() - 1).getKey() - (1L << 31);
+        for (Map.Entry<Integer, String> virtualNode : virtualNodes) {
+            String name = virtualNode.getValue();
+            String server = name.substring(0, name.indexOf("##"));
+            expected.merge(server, (virtualNode.getKey() - previous) / (double) (1L << 31),
+                Double::sum);
+            previous = virtualNode.getKey();
+        }
+        expected.forEach((server, ownership) -> Assert.assertEquals(
+            snapshot.getOwnership().get(server), ownership, 1e-9));
+        snapshot.getOwnership().values().forEach(ownership -> Assert.assertTrue(ownership < 0.3));
+        Assert.assertEquals(Arrays.stream(snapshot.getLatencyHistogram()).sum(), 20000);
+        Assert.assertTrue(snapshot.getMaxMeanRatio() >= 1);
+        Assert.assertTrue(snapshot.getLoadStandardDeviation() > 0);
+        Assert.assertTrue(snapshot.getLatencyPercentile(0.99) > 0);
+        snapshot.getLookups().forEach((server, lookups) -> System.out.println(
+            server + ":" + lookups + ",ownership:" + snapshot.getOwnership().get(server)));
+        consistentHashing.disableMetrics();
+        Assert.assertNull(consistentHashing.getMetrics());
+    }
+
+    @Test
+    public void testNearCache() {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 100);
+        Assert.assertNull(consistentHashing.getNearCache());
+        NearCache nearCache = consistentHashing.enableNearCache(1000);
+        Assert.assertEquals(nearCache.getCapacity(), 1024);
+        List<String> nodes = IntStream.range(0, 100).mapToObj(i -> getRandomNode())
+            .collect(Collectors.toList());
+        Map<String, String> servers = new HashMap<>();
+        nodes.forEach(node -> servers.put(node, consistentHashing.getServer(node)));
+        nodes.forEach(node -> Assert.assertEquals(consistentHashing.getServer(node),
+            servers.get(node)));
+        Assert.assertEquals(nearCache.getHits() + nearCache.getMisses(), 200);
+        Assert.assertTrue(nearCache.getHitRate() > 0.4);
+        // membership change drops every entry
+        consistentHashing.addServerNode("172.0.0.6");
+        long misses = nearCache.getMisses();
+        ConsistentHashingWithVirtualNode expected = new ConsistentHashingWithVirtualNode(
+            consistentHashing.getRealServerNodeWeights(), 100);
+        nodes.forEach(node -> Assert.assertEquals(consistentHashing.getServer(node),
+            expected.getServer(node)));
+        Assert.assertEquals(nearCache.getMisses() - misses, 100);
+        nearCache.clear();
+        Assert.assertEquals(nearCache.getHits(), 0);
+        consistentHashing.disableNearCache();
+        Assert.assertNull(consistentHashing.getNearCache());
+    }
+
+    @Test
+    public void testNearCacheEvictions() {
+        NearCache nearCache = new NearCache(1);
+        nearCache.put(1, "node-1", 0, "172.0.0.1");
+        // same node again,on the same or a newer snapshot
+        nearCache.put(1, "node-1", 0, "172.0.0.1");
+        nearCache.put(2, "node-1", 1, "172.0.0.2");
+        Assert.assertEquals(nearCache.getEvictions(), 0);
+        nearCache.put(2, "node-2", 1, "172.0.0.2");
+        Assert.assertEquals(nearCache.getEvictions(), 1);
+        Assert.assertNull(nearCache.get(2, "node-1"));
+        Assert.assertEquals(nearCache.get(2, "node-2").server, "172.0.0.2");
+    }
+
+    @Test
+    public void testExportMappedRing() throws IOException {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 100);
+        consistentHashing.addServerNode("172.0.0.6", 3);
+        Path path = Files.createTempFile("ring", ".bin");
+        try {
+            consistentHashing.export(path);
+            MappedRing mappedRing = MappedRing.open(path, new FnvHash());
+            Assert.assertEquals(mappedRing.getRealServerNodes(),
+                consistentHashing.getRealServerNodes());
+            IntStream.range(0, 10000).forEach(i -> {
+                String node = getRandomNode();
+                Assert.assertEquals(consistentHashing.getServer(node), mappedRing.getServer(node));
+                Assert.assertEquals(consistentHashing.getServer((long) i), mappedRing.getServer(i));
+            });
+            // re-export replaces the file,the old mapping keeps serving the old ring
+            List<String> before = IntStream.range(0, 1000).mapToObj(mappedRing::getServer)
+                .collect(Collectors.toList());
+            consistentHashing.removeServerNode("172.0.0.6");
+            consistentHashing.export(path);
+            IntStream.range(0, 1000).forEach(
+                i -> Assert.assertEquals(mappedRing.getServer(i), before.get(i)));
+            Assert.assertEquals(MappedRing.open(path, new FnvHash()).getRealServerNodes(),
+                consistentHashing.getRealServerNodes());
+            Assert.assertEquals(Files.list(path.getParent())
+                .filter(file -> file.getFileName().toString().endsWith(".tmp")
+                    && file.getFileName().toString().startsWith(path.getFileName().toString()))
+                .count(), 0);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMappedRingHash() throws IOException {
+        Path path = Files.createTempFile("ring", ".bin");
+        try {
+            new ConsistentHashingWithVirtualNode(realServerNodes, 10).export(path);
+            MappedRing.open(path, new MurmurHash());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testIndependentInstances() {
+        ConsistentHashingWithVirtualNode first = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 5);
+        ConsistentHashingWithVirtualNode second = new ConsistentHashingWithVirtualNode(
+            Lists.newArrayList("10.0.0.1"), 5);
+        Assert.assertEquals(first.getRealServerNodes().size(), 5);
+        Assert.assertEquals(second.getRealServerNodes().size(), 1);
+        Assert.assertEquals(second.getServer(getRandomNode()), "10.0.0.1");
+    }
+
+    @Test
+    public void testConcurrentAddServerNode() throws InterruptedException {
+        ConsistentHashingWithVirtualNode consistentHashing = new ConsistentHashingWithVirtualNode(
+            realServerNodes, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        IntStream.range(0, 100).forEach(i -> executor.execute(() -> {
+            consistentHashing.addServerNode("10.0.1." + i);
+            consistentHashing.getServer(String.valueOf(i));
+        }));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(consistentHashing.getRealServerNodes().size(), 105);
+        Assert.assertEquals(consistentHashing.getVirtualServerNodes().size(), 1050);
+    }
+
     private void printGetServer(int virtualNodeNum, int nodeNum) {
         printGetServer(virtualNodeNum, nodeNum, null);
     }
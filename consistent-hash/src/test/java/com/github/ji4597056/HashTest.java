@@ -0,0 +1,118 @@
+package com.github.ji4597056;
+
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * HashTest
+ *
+ * @author Jeffrey
+ * @since 2018/03/12 14:08
+ */
+public class HashTest {
+
+    private Random random = new Random(0);
+
+    @Test
+    public void testMurmurHashBytes() {
+        Hash hash = new MurmurHash();
+        IntStream.range(0, 1000).forEach(i -> {
+            byte[] bytes = new byte[random.nextInt(40)];
+            random.nextBytes(bytes);
+            int expected = Hashing.murmur3_32().hashBytes(bytes).asInt();
+            Assert.assertEquals(expected, hash.getHash(bytes, 0, bytes.length));
+            Assert.assertEquals(expected, hash.getHash(ByteBuffer.wrap(bytes)));
+            Assert.assertEquals(expected, hash.getHash(directBuffer(bytes)));
+            long key = random.nextLong();
+            Assert.assertEquals(Hashing.murmur3_32().hashLong(key).asInt(), hash.getHash(key));
+        });
+    }
+
+    @Test
+    public void testMurmurHashStringBytes() {
+        Hash hash = new MurmurHash();
+        String key = "172.0.0.1##10";
+        byte[] bytes = ("xx" + key).getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(hash.getHash(key), hash.getHash(bytes, 2, bytes.length - 2));
+    }
+
+    @Test
+    public void testMurmurHashString() {
+        Hash hash = new MurmurHash();
+        IntStream.range(0, 1000).forEach(i -> {
+            String key = getRandomString();
+            Assert.assertEquals(Hashing.murmur3_32().hashString(key, StandardCharsets.UTF_8).asInt(),
+                hash.getHash(key));
+        });
+    }
+
+    @Test
+    public void testMurmur128Hash() {
+        Hash hash = new Murmur128Hash();
+        IntStream.range(0, 1000).forEach(i -> {
+            String key = getRandomString();
+            Assert.assertEquals(
+                Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asInt(),
+                hash.getHash(key));
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(Hashing.murmur3_128().hashBytes(bytes).asInt(),
+                hash.getHash(bytes, 0, bytes.length));
+            long longKey = random.nextLong();
+            Assert.assertEquals(Hashing.murmur3_128().hashLong(longKey).asInt(),
+                hash.getHash(longKey));
+        });
+    }
+
+    @Test
+    public void testXxHash() {
+        XxHash hash = new XxHash();
+        Assert.assertEquals(0xef46db3751d8e999L, hash.hash64(""));
+        Assert.assertEquals(0x44bc2cf5ad770999L, hash.hash64("abc"));
+        IntStream.range(0, 1000).forEach(i -> {
+            String key = getRandomString();
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(hash.hash64(bytes, 0, bytes.length), hash.hash64(key));
+            long longKey = random.nextLong();
+            Assert.assertEquals(hash.getHash(ByteBuffer.allocate(8).putLong(0, Long.reverseBytes(
+                longKey))), hash.getHash(longKey));
+        });
+    }
+
+    @Test
+    public void testFnvHashBytes() {
+        Hash hash = new FnvHash();
+        String key = "172.0.0.1##10";
+        byte[] bytes = key.getBytes(StandardCharsets.US_ASCII);
+        int expected = hash.getHash(key);
+        Assert.assertEquals(expected, hash.getHash(bytes, 0, bytes.length));
+        Assert.assertEquals(expected, hash.getHash(ByteBuffer.wrap(bytes)));
+        Assert.assertEquals(expected, hash.getHash(directBuffer(bytes)));
+        long key2 = random.nextLong();
+        Assert.assertEquals(hash.getHash(ByteBuffer.allocate(8).putLong(0, Long.reverseBytes(key2))),
+            hash.getHash(key2));
+    }
+
+    private String getRandomString() {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(80);
+        for (int i = 0; i < length; i++) {
+            // mix ascii,bmp chars and(possibly unpaired) surrogates
+            builder.append((char) (random.nextBoolean() ? random.nextInt(0x80)
+                : random.nextInt(Character.MAX_VALUE + 1)));
+        }
+        return builder.toString();
+    }
+
+    private ByteBuffer directBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 3);
+        buffer.position(3);
+        buffer.put(bytes);
+        buffer.position(3);
+        return buffer;
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.ji4597056;
+
+import com.google.common.collect.Lists;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * RouterTest
+ *
+ * @author Jeffrey
+ * @since 2018/03/19 16:10
+ */
+public class RouterTest {
+
+    private List<String> realServerNodes = IntStream.range(1, 11).mapToObj(i -> "172.0.0." + i)
+        .collect(Collectors.toList());
+
+    private List<String> nodes = IntStream.range(0, 100000).mapToObj(i -> "node-" + i)
+        .collect(Collectors.toList());
+
+    @Test
+    public void testJumpConsistentHashing() {
+        JumpConsistentHashing router = new JumpConsistentHashing(realServerNodes);
+        assertBalanced(router);
+        // about 1/11 nodes move to the new server
+        int moved = router.countMovedNodes(nodes, () -> router.addServerNode("172.0.0.11"));
+        printMoved("jump add", moved);
+        Assert.assertTrue(moved < nodes.size() / 8);
+        moved = router.countMovedNodes(nodes, () -> router.removeServerNode("172.0.0.11"));
+        Assert.assertTrue(moved < nodes.size() / 8);
+        Assert.assertEquals(router.getRealServerNodes(), realServerNodes);
+    }
+
+    @Test
+    public void testJumpConsistentHashingRemoveMiddle() {
+        JumpConsistentHashing router = new JumpConsistentHashing(realServerNodes);
+        router.removeServerNode("172.0.0.3");
+        Assert.assertEquals(router.getRealServerNodes().size(), 9);
+        Assert.assertEquals(router.getRealServerNodes().get(2), "172.0.0.10");
+    }
+
+    @Test
+    public void testMaglevHashing() {
+        MaglevHashing router = new MaglevHashing(realServerNodes, 5003, new MurmurHash());
+        assertBalanced(router);
+        int moved = router.countMovedNodes(nodes, () -> router.addServerNode("172.0.0.11"));
+        printMoved("maglev add", moved);
+        Assert.assertTrue(moved < nodes.size() / 6);
+        moved = router.countMovedNodes(nodes, () -> router.removeServerNode("172.0.0.1"));
+        printMoved("maglev remove", moved);
+        Assert.assertTrue(moved < nodes.size() / 6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaglevHashingTableSize() {
+        new MaglevHashing(realServerNodes, 5000, new FnvHash());
+    }
+
+    @Test
+    public void testConsistentHashingMoved() {
+        ConsistentHashingWithVirtualNode router = new ConsistentHashingWithVirtualNode(
+            Lists.newArrayList(realServerNodes), 100);
+        int moved = router.countMovedNodes(nodes, () -> router.addServerNode("172.0.0.11"));
+        printMoved("ring add", moved);
+        Assert.assertTrue(moved < nodes.size() / 6);
+    }
+
+    @Test
+    public void testRendezvousHashing() {
+        RendezvousHashing router = new RendezvousHashing(realServerNodes, new MurmurHash());
+        assertBalanced(router);
+        Map<String, String> before = new HashMap<>();
+        nodes.forEach(node -> before.put(node, router.getServer(node)));
+        int moved = router.countMovedNodes(nodes, () -> router.addServerNode("172.0.0.11"));
+        printMoved("rendezvous add", moved);
+        Assert.assertTrue(moved < nodes.size() / 8);
+        // only nodes of the new server move,and all of them move back
+        nodes.forEach(node -> {
+            String server = router.getServer(node);
+            Assert.assertTrue(server.equals(before.get(node)) || server.equals("172.0.0.11"));
+        });
+        router.removeServerNode("172.0.0.11");
+        nodes.forEach(node -> Assert.assertEquals(router.getServer(node), before.get(node)));
+    }
+
+    @Test
+    public void testRendezvousHashingWeight() {
+        Map<String, Integer> weightedNodes = new HashMap<>();
+        weightedNodes.put("172.0.0.1", 1);
+        weightedNodes.put("172.0.0.2", 3);
+        RendezvousHashing router = new RendezvousHashing(weightedNodes, new MurmurHash());
+        long heavy = nodes.stream().filter(node -> router.getServer(node).equals("172.0.0.2"))
+            .count();
+        Assert.assertTrue(Math.abs(heavy - nodes.size() * 3 / 4) < nodes.size() / 50);
+    }
+
+    @Test
+    public void testSkeletonRendezvousHashing() {
+        List<String> servers = IntStream.range(0, 1000)
+            .mapToObj(i -> "10.0." + i / 256 + "." + i % 256).collect(Collectors.toList());
+        SkeletonRendezvousHashing router = new SkeletonRendezvousHashing(servers, 32,
+            new MurmurHash());
+        Assert.assertEquals(router.getClusterNum(), 32);
+        Map<String, String> before = new HashMap<>();
+        nodes.forEach(node -> before.put(node, router.getServer(node)));
+        Assert.assertTrue(new HashSet<>(before.values()).size() > servers.size() * 9 / 10);
+        String removed = before.get(nodes.get(0));
+        int moved = router.countMovedNodes(nodes, () -> router.removeServerNode(removed));
+        printMoved("skeleton rendezvous remove", moved);
+        // nodes of the removed server move,and its cluster gives up about as many again
+        long owned = before.values().stream().filter(removed::equals).count();
+        Assert.assertTrue(moved >= owned && moved < owned * 3);
+        Assert.assertFalse(router.getServer(nodes.get(0)).equals(removed));
+    }
+
+    @Test
+    public void testSkeletonRendezvousHashingConcurrent() throws Exception {
+        // one real node per cluster,every removal empties a cluster
+        SkeletonRendezvousHashing router = new SkeletonRendezvousHashing(realServerNodes, 1,
+            new MurmurHash());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> readers = IntStream.range(0, 3).mapToObj(i -> executor.submit(() -> {
+            while (running.get()) {
+                nodes.subList(0, 1000).forEach(router::getServer);
+            }
+        })).collect(Collectors.toList());
+        for (int i = 0; i < 2000; i++) {
+            String server = realServerNodes.get(i % 9);
+            router.removeServerNode(server);
+            router.addServerNode(server);
+        }
+        running.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        Assert.assertEquals(router.getRealServerNodes().size(), realServerNodes.size());
+    }
+
+    private void assertBalanced(Router router) {
+        Map<String, Integer> result = new HashMap<>();
+        nodes.forEach(node -> result.merge(router.getServer(node), 1, Integer::sum));
+        Assert.assertEquals(result.size(), realServerNodes.size());
+        int average = nodes.size() / realServerNodes.size();
+        result.values().forEach(count -> Assert.assertTrue(Math.abs(count - average) < average / 5));
+    }
+
+    private void printMoved(String change, int moved) {
+        System.out.println(change + ",moved nodes:" + moved + "/" + nodes.size());
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+/**
+ * 冻结的有向图,压缩稀疏行(CSR)存储,顶点按id升序编号为序号0..n-1
+ * <p>
+ * 序号i的出边目标为targets[offsets[i]..offsets[i + 1]),没有逐边对象
+ *
+ * @author Jeffrey
+ * @since 2018/05/14 10:05
+ */
+public class CompactDirectedGraph<T> {
+
+    // 顶点id,升序
+    private final int[] ids;
+
+    // 顶点权重
+    private final int[] weights;
+
+    // 顶点内容,为null时不保存内容
+    private final Object[] contents;
+
+    // 出边起始位置,长度为顶点数+1
+    private final int[] offsets;
+
+    // 出边指向的顶点序号
+    private final int[] targets;
+
+    // 入度
+    private final int[] inDegrees;
+
+    CompactDirectedGraph(int[] ids, int[] weights, Object[] contents, int[] offsets,
+        int[] targets) {
+        this.ids = ids;
+        this.weights = weights;
+        this.contents = contents;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.inDegrees = new int[ids.length];
+        for (int target : targets) {
+            inDegrees[target]++;
+        }
+    }
+
+    // 从有向图构建
+    public static <T> CompactDirectedGraph<T> of(DirectedGraph<T> graph) {
+        Collection<DirectedGraph<T>.Vertex> vertices = graph.vertices();
+        int n = vertices.size();
+        int[] ids = new int[n];
+        int i = 0;
+        for (DirectedGraph<T>.Vertex vertex : vertices) {
+            ids[i++] = vertex.getId();
+        }
+        Arrays.sort(ids);
+        int[] weights = new int[n];
+        Object[] contents = new Object[n];
+        int[] offsets = new int[n + 1];
+        for (DirectedGraph<T>.Vertex vertex : vertices) {
+            int ordinal = Arrays.binarySearch(ids, vertex.getId());
+            weights[ordinal] = vertex.getWeight();
+            contents[ordinal] = vertex.getContent();
+            offsets[ordinal + 1] = vertex.getAdjEdges().size();
+        }
+        for (i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] targets = new int[offsets[n]];
+        for (DirectedGraph<T>.Vertex vertex : vertices) {
+            int position = offsets[Arrays.binarySearch(ids, vertex.getId())];
+            for (DirectedGraph<T>.Edge edge : vertex.getAdjEdges()) {
+                targets[position++] = Arrays.binarySearch(ids, edge.getEndVertex().getId());
+            }
+        }
+        return new CompactDirectedGraph<>(ids, weights, contents, offsets, targets);
+    }
+
+    // 拓扑排序,返回顶点id
+    public int[] topoSort() {
+        int[] result = new int[ids.length];
+        if (traverse(result) != ids.length) {
+            throw new RuntimeException("Graph has circle!");
+        }
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids[result[i]];
+        }
+        return result;
+    }
+
+    // 判断是否有环
+    public boolean hasCircle() {
+        return traverse(null) != ids.length;
+    }
+
+    // 遍历,按拓扑序写入顶点序号,返回遍历的顶点数,小于顶点数即有环
+    private int traverse(int[] order) {
+        int n = ids.length;
+        // 入度的临时副本,不修改图
+        int[] inDegree = Arrays.copyOf(inDegrees, n);
+        IntPriorityQueue queue = new IntPriorityQueue(n, weights);
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                queue.offer(i);
+            }
+        }
+        int count = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            if (order != null) {
+                order[count] = v;
+            }
+            count++;
+            for (int e = offsets[v], end = offsets[v + 1]; e < end; e++) {
+                if (--inDegree[targets[e]] == 0) {
+                    queue.offer(targets[e]);
+                }
+            }
+        }
+        return count;
+    }
+
+    // 强连通分量
+    public StronglyConnectedComponents stronglyConnectedComponents() {
+        return new StronglyConnectedComponents(this);
+    }
+
+    // 可达性索引
+    public ReachabilityIndex reachabilityIndex() {
+        return new ReachabilityIndex(this);
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    // 顶点数
+    public int size() {
+        return ids.length;
+    }
+
+    // 边数
+    public int edgeSize() {
+        return targets.length;
+    }
+
+    // 顶点id对应的序号
+    public int ordinalOf(int id) {
+        int ordinal = Arrays.binarySearch(ids, id);
+        if (ordinal < 0) {
+            throw new NoSuchElementException("No vertex " + id + "!");
+        }
+        return ordinal;
+    }
+
+    public int getId(int ordinal) {
+        return ids[ordinal];
+    }
+
+    public int getWeight(int ordinal) {
+        return weights[ordinal];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getContent(int ordinal) {
+        return contents == null ? null : (T) contents[ordinal];
+    }
+
+    public int getInDegree(int ordinal) {
+        return inDegrees[ordinal];
+    }
+
+    public int getOutDegree(int ordinal) {
+        return offsets[ordinal + 1] - offsets[ordinal];
+    }
+
+    // 第index条出边指向的顶点序号
+    public int getTarget(int ordinal, int index) {
+        return targets[offsets[ordinal] + index];
+    }
+}
@@ -1,14 +1,26 @@
 package com.github.ji4597056;
 
+import java.util.AbstractSequentialList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * @author Jeffrey
@@ -16,10 +28,39 @@ import java.util.function.Consumer;
  */
 public class DirectedGraph<T> {
 
+    // 层内顺序,权重大的优先,权重相同时顶点序号小的优先
+    private static final Comparator<DirectedGraph<?>.Vertex> LEVEL_ORDER = Comparator
+        .comparingInt((DirectedGraph<?>.Vertex vertex) -> -vertex.weight)
+        .thenComparingInt(vertex -> vertex.ordinal);
+
     private Map<Integer, Vertex> graph;
 
+    // 顶点,下标为顶点序号
+    private List<Vertex> vertices;
+
+    // 维护的拓扑序,下标为顶点的拓扑位置,orderValid为false时延迟到使用时重建
+    private List<Vertex> order;
+
+    // 排在order之前的顶点,拓扑位置为负数,位置p的顶点在下标-1-p,新的起始顶点加在这里
+    private List<Vertex> front;
+
+    private boolean orderValid;
+
+    // 拓扑序中已删除顶点留下的空位数
+    private int tombstones;
+
+    // 入度为0的顶点
+    private List<Vertex> ready;
+
+    // 调整拓扑序时的访问标记
+    private int epoch;
+
     public DirectedGraph() {
         this.graph = new HashMap<>();
+        this.vertices = new ArrayList<>();
+        this.order = new ArrayList<>();
+        this.front = new ArrayList<>();
+        this.ready = new ArrayList<>();
     }
 
     // 拓扑排序
@@ -31,6 +72,174 @@ public class DirectedGraph<T> {
         return result;
     }
 
+    // 分层拓扑排序,同一层的顶点互不依赖可以同时执行,层内权重大的优先
+    public List<List<Vertex>> topoLevels() {
+        int n = vertices.size();
+        int[] inDegree = new int[n];
+        List<Vertex> level = new ArrayList<>();
+        for (Vertex vertex : vertices) {
+            inDegree[vertex.ordinal] = vertex.inDegree;
+            if (vertex.inDegree == 0) {
+                level.add(vertex);
+            }
+        }
+        List<List<Vertex>> result = new ArrayList<>();
+        int count = 0;
+        while (!level.isEmpty()) {
+            level.sort(LEVEL_ORDER);
+            result.add(level);
+            count += level.size();
+            List<Vertex> next = new ArrayList<>();
+            for (Vertex v : level) {
+                for (Edge e : v.adjEdges) {
+                    if (--inDegree[e.endVertex.ordinal] == 0) {
+                        next.add(e.endVertex);
+                    }
+                }
+            }
+            level = next;
+        }
+        if (count != n) {
+            throw new RuntimeException("Graph has circle!");
+        }
+        return result;
+    }
+
+    // 在ForkJoinPool.commonPool()中执行
+    public CompletableFuture<Void> execute(Function<T, ?> task) {
+        return execute(task, ForkJoinPool.commonPool());
+    }
+
+    // 按依赖执行每个顶点的内容,入度减为0的顶点立即提交到executor,任一任务失败则不再提交新任务
+    // 执行期间不能修改图
+    public CompletableFuture<Void> execute(Function<T, ?> task, Executor executor) {
+        if (hasCircle()) {
+            throw new RuntimeException("Graph has circle!");
+        }
+        int n = vertices.size();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (n == 0) {
+            result.complete(null);
+            return result;
+        }
+        AtomicIntegerArray inDegree = new AtomicIntegerArray(n);
+        AtomicInteger remaining = new AtomicInteger(n);
+        List<Vertex> roots = new ArrayList<>();
+        for (Vertex vertex : vertices) {
+            inDegree.set(vertex.ordinal, vertex.inDegree);
+            if (vertex.inDegree == 0) {
+                roots.add(vertex);
+            }
+        }
+        roots.forEach(vertex -> submit(vertex, task, executor, inDegree, remaining, result));
+        return result;
+    }
+
+    // 提交顶点任务,完成后递减后继的入度
+    private void submit(Vertex vertex, Function<T, ?> task, Executor executor,
+        AtomicIntegerArray inDegree, AtomicInteger remaining, CompletableFuture<Void> result) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    task.apply(vertex.content);
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                    return;
+                }
+                for (Edge e : vertex.adjEdges) {
+                    if (inDegree.decrementAndGet(e.endVertex.ordinal) == 0) {
+                        submit(e.endVertex, task, executor, inDegree, remaining, result);
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete(null);
+                }
+            });
+        } catch (Throwable t) {
+            // executor拒绝任务
+            result.completeExceptionally(t);
+        }
+    }
+
+    // 关键路径,顶点权重为耗时,沿维护的拓扑序一次正向一次反向遍历
+    // 拓扑序作废时会重建,与topoOrder一样只能在修改图的线程调用
+    public CriticalPath criticalPath() {
+        List<Vertex> order = topoOrder();
+        int n = vertices.size();
+        long[] earliestStart = new long[n];
+        int[] pred = new int[n];
+        Arrays.fill(pred, -1);
+        for (Vertex v : order) {
+            long finish = earliestStart[v.ordinal] + v.weight;
+            for (Edge e : v.adjEdges) {
+                int w = e.endVertex.ordinal;
+                if (pred[w] < 0 || finish > earliestStart[w]) {
+                    earliestStart[w] = finish;
+                    pred[w] = v.ordinal;
+                }
+            }
+        }
+        long length = length(earliestStart);
+        long[] latestFinish = new long[n];
+        Arrays.fill(latestFinish, length);
+        for (ListIterator<Vertex> it = order.listIterator(order.size()); it.hasPrevious(); ) {
+            Vertex v = it.previous();
+            for (Edge e : v.adjEdges) {
+                latestFinish[v.ordinal] = Math.min(latestFinish[v.ordinal],
+                    latestFinish[e.endVertex.ordinal] - e.endVertex.weight);
+            }
+        }
+        return new CriticalPath(length, earliestStart, latestFinish, pred);
+    }
+
+    // 并行计算关键路径,同一层的顶点并发地从前驱拉取结果
+    public CriticalPath parallelCriticalPath() {
+        List<List<Vertex>> levels = topoLevels();
+        int n = vertices.size();
+        long[] earliestStart = new long[n];
+        int[] pred = new int[n];
+        Arrays.fill(pred, -1);
+        for (List<Vertex> level : levels) {
+            level.parallelStream().forEach(v -> {
+                for (Edge e : v.inEdges) {
+                    Vertex p = e.startVertex;
+                    long finish = earliestStart[p.ordinal] + p.weight;
+                    if (pred[v.ordinal] < 0 || finish > earliestStart[v.ordinal]) {
+                        earliestStart[v.ordinal] = finish;
+                        pred[v.ordinal] = p.ordinal;
+                    }
+                }
+            });
+        }
+        long length = length(earliestStart);
+        long[] latestFinish = new long[n];
+        Arrays.fill(latestFinish, length);
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            levels.get(i).parallelStream().forEach(v -> {
+                for (Edge e : v.adjEdges) {
+                    latestFinish[v.ordinal] = Math.min(latestFinish[v.ordinal],
+                        latestFinish[e.endVertex.ordinal] - e.endVertex.weight);
+                }
+            });
+        }
+        return new CriticalPath(length, earliestStart, latestFinish, pred);
+    }
+
+    // 最长完成时间
+    private long length(long[] earliestStart) {
+        long length = 0;
+        for (Vertex v : vertices) {
+            length = Math.max(length, earliestStart[v.ordinal] + v.weight);
+        }
+        return length;
+    }
+
     // 判断是否有环
     public boolean hasCircle() {
         return traverse(null);
@@ -39,97 +248,487 @@ public class DirectedGraph<T> {
     // 清空
     public void clear() {
         graph.clear();
+        vertices.clear();
+        order.clear();
+        front.clear();
+        orderValid = false;
+        tombstones = 0;
+        ready.clear();
+    }
+
+    // 入度为0的顶点,随增删边和顶点增量维护
+    public List<Vertex> getReadyVertices() {
+        return Collections.unmodifiableList(ready);
+    }
+
+    // 维护的拓扑序,与topoSort不同,不按权重排序
+    // 返回只读视图,跳过已删除顶点的空位,不整理拓扑序,图修改后视图随之变化
+    // 拓扑序作废(add形成环)后的第一次调用会重建,因此只能在修改图的线程调用,读线程应使用topoSort
+    public List<Vertex> topoOrder() {
+        if (!ensureOrder()) {
+            throw new RuntimeException("Graph has circle!");
+        }
+        return new OrderView();
+    }
+
+    private void setOrder(int position, Vertex vertex) {
+        if (position < 0) {
+            front.set(-1 - position, vertex);
+        } else {
+            order.set(position, vertex);
+        }
+    }
+
+    // 去掉拓扑序中的空位,front合并到order,拓扑位置从0重新编号
+    private void compactOrder() {
+        List<Vertex> compacted = new ArrayList<>(front.size() + order.size() - tombstones);
+        for (int i = front.size() - 1; i >= 0; i--) {
+            Vertex v = front.get(i);
+            if (v != null) {
+                v.position = compacted.size();
+                compacted.add(v);
+            }
+        }
+        for (Vertex v : order) {
+            if (v != null) {
+                v.position = compacted.size();
+                compacted.add(v);
+            }
+        }
+        order = compacted;
+        front = new ArrayList<>();
+        tombstones = 0;
+    }
+
+    // 建立拓扑序,返回是否无环
+    private boolean ensureOrder() {
+        if (!orderValid) {
+            List<Vertex> sorted = new ArrayList<>();
+            if (traverse(sorted::add)) {
+                return false;
+            }
+            for (int i = 0; i < sorted.size(); i++) {
+                sorted.get(i).position = i;
+            }
+            order = sorted;
+            front = new ArrayList<>();
+            orderValid = true;
+            tombstones = 0;
+        }
+        return true;
+    }
+
+    // 冻结为压缩稀疏行存储
+    public CompactDirectedGraph<T> compact() {
+        return CompactDirectedGraph.of(this);
+    }
+
+    // 强连通分量,有环时可以找到具体的环
+    public StronglyConnectedComponents stronglyConnectedComponents() {
+        return compact().stronglyConnectedComponents();
+    }
+
+    // 可达性索引,图修改后需要重新构建
+    public ReachabilityIndex reachabilityIndex() {
+        return compact().reachabilityIndex();
+    }
+
+    // 所有顶点
+    Collection<Vertex> vertices() {
+        return vertices;
     }
 
     // 遍历,返回是否有环,true=有环,false=无环
+    // 只读图,入度使用按顶点序号的临时数组,可重复调用,读线程可并发调用
     private boolean traverse(Consumer<Vertex> consumer) {
-        int count = 0;
-        Queue<Vertex> queue = new PriorityQueue<>();
+        int n = vertices.size();
+        int[] inDegree = new int[n];
+        int[] weights = new int[n];
+        IntPriorityQueue queue = new IntPriorityQueue(n, weights);
         // 扫描所有的顶点,将入度为0的顶点入队列
-        Collection<Vertex> vertexs = getGraphValues();
-        for (Vertex vertex : vertexs) {
-            if (vertex.inDegree == 0) {
-                queue.offer(vertex);
+        for (int i = 0; i < n; i++) {
+            Vertex vertex = vertices.get(i);
+            inDegree[i] = vertex.inDegree;
+            weights[i] = vertex.weight;
+            if (inDegree[i] == 0) {
+                queue.offer(i);
             }
         }
-        Vertex v;
-        while ((v = queue.poll()) != null) {
+        int count = 0;
+        while (!queue.isEmpty()) {
+            Vertex v = vertices.get(queue.poll());
             if (consumer != null) {
                 consumer.accept(v);
             }
             count++;
             for (Edge e : v.adjEdges) {
-                if (--e.endVertex.inDegree == 0) {
-                    queue.offer(e.endVertex);
+                if (--inDegree[e.endVertex.ordinal] == 0) {
+                    queue.offer(e.endVertex.ordinal);
                 }
             }
         }
-        return count != graph.size();
+        return count != n;
     }
 
     // 图中增加有向边
     public void add(GraphNode<T> from, GraphNode<T> to) {
         assert from != null;
         assert to != null;
-        Vertex tVertex;
-        Vertex fVertex;
         // update to-vertex
-        if (!graph.containsKey(to.getId())) {
-            tVertex = new Vertex(to.getId(), to.getWeight(), to.getContent());
-            graph.put(tVertex.id, tVertex);
+        Vertex tVertex = getOrAdd(to, false);
+        if (tVertex.inDegree++ == 0) {
+            removeReady(tVertex);
         }
-        tVertex = graph.get(to.getId());
-        tVertex.inDegree++;
 
-        // update from-vertex
-        if (!graph.containsKey(from.getId())) {
-            fVertex = new Vertex(from.getId(), from.getWeight(), from.getContent());
-            graph.put(fVertex.id, fVertex);
+        // update from-vertex,新顶点排在拓扑序最前,不需要调整
+        Vertex fVertex = getOrAdd(from, true);
+        // 已建立拓扑序时增量维护,出现环则作废
+        if (orderValid && !reorder(fVertex, tVertex)) {
+            orderValid = false;
         }
-        fVertex = graph.get(from.getId());
         addEdge(fVertex, tVertex);
     }
 
+    // 图中增加有向边,会形成环时不增加并返回false,图已有环时抛出异常
+    // 增量维护拓扑序(Pearce-Kelly),只访问拓扑位置在两个顶点之间受影响的顶点
+    public boolean addIfAcyclic(GraphNode<T> from, GraphNode<T> to) {
+        assert from != null;
+        assert to != null;
+        if (!ensureOrder()) {
+            throw new RuntimeException("Graph has circle!");
+        }
+        if (from.getId() == to.getId()) {
+            return false;
+        }
+        Vertex fVertex = graph.get(from.getId());
+        Vertex tVertex = graph.get(to.getId());
+        // 新顶点不会形成环
+        if (fVertex != null && tVertex != null && !reorder(fVertex, tVertex)) {
+            return false;
+        }
+        add(from, to);
+        return true;
+    }
+
+    // 增加边x->y前调整拓扑序,使x在y之前,返回false表示会形成环,此时拓扑序不变
+    private boolean reorder(Vertex x, Vertex y) {
+        if (x == y) {
+            return false;
+        }
+        int lb = y.position;
+        int ub = x.position;
+        if (ub < lb) {
+            return true;
+        }
+        epoch++;
+        // 从y向后搜索拓扑位置不超过x的顶点,遇到x则有环
+        List<Vertex> forward = new ArrayList<>();
+        Deque<Vertex> stack = new ArrayDeque<>();
+        y.mark = epoch;
+        stack.push(y);
+        while (!stack.isEmpty()) {
+            Vertex v = stack.pop();
+            forward.add(v);
+            for (Edge e : v.adjEdges) {
+                Vertex w = e.endVertex;
+                if (w == x) {
+                    return false;
+                }
+                if (w.mark != epoch && w.position < ub) {
+                    w.mark = epoch;
+                    stack.push(w);
+                }
+            }
+        }
+        // 从x向前搜索拓扑位置不小于y的顶点,无环时与forward不相交
+        List<Vertex> backward = new ArrayList<>();
+        x.mark = epoch;
+        stack.push(x);
+        while (!stack.isEmpty()) {
+            Vertex v = stack.pop();
+            backward.add(v);
+            for (Edge e : v.inEdges) {
+                Vertex w = e.startVertex;
+                if (w.mark != epoch && w.position > lb) {
+                    w.mark = epoch;
+                    stack.push(w);
+                }
+            }
+        }
+        // 受影响顶点原有的拓扑位置重新分配,backward整体排在forward之前,各自保持原相对顺序
+        Comparator<Vertex> byPosition = Comparator.comparingInt(v -> v.position);
+        forward.sort(byPosition);
+        backward.sort(byPosition);
+        int[] positions = new int[forward.size() + backward.size()];
+        int i = 0;
+        for (Vertex v : backward) {
+            positions[i++] = v.position;
+        }
+        for (Vertex v : forward) {
+            positions[i++] = v.position;
+        }
+        Arrays.sort(positions);
+        i = 0;
+        for (Vertex v : backward) {
+            v.position = positions[i++];
+            setOrder(v.position, v);
+        }
+        for (Vertex v : forward) {
+            v.position = positions[i++];
+            setOrder(v.position, v);
+        }
+        return true;
+    }
+
     // 图中增加顶点
     public void add(GraphNode<T> node) {
         assert node != null;
-        if (!graph.containsKey(node.getId())) {
-            graph.put(node.getId(), new Vertex(node.getId(), node.getWeight(), node.getContent()));
+        getOrAdd(node, false);
+    }
+
+    // 获取顶点,不存在则增加并分配顶点序号,first为true时新顶点排在拓扑序最前,否则排在最后
+    private Vertex getOrAdd(GraphNode<T> node, boolean first) {
+        Vertex vertex = graph.get(node.getId());
+        if (vertex == null) {
+            vertex = new Vertex(node.getId(), node.getWeight(), node.getContent());
+            vertex.ordinal = vertices.size();
+            graph.put(vertex.id, vertex);
+            vertices.add(vertex);
+            addReady(vertex);
+            // 孤立顶点放在拓扑序两端都不破坏顺序
+            if (orderValid && first) {
+                vertex.position = -1 - front.size();
+                front.add(vertex);
+            } else if (orderValid) {
+                vertex.position = order.size();
+                order.add(vertex);
+            }
         }
+        return vertex;
     }
 
     // 顶点增加边
     private void addEdge(Vertex start, Vertex end) {
-        Edge edge = new Edge(end);
-        List<Edge> adjEdges = start.adjEdges;
-        if (adjEdges == null) {
-            adjEdges = new ArrayList<>();
-        }
-        adjEdges.add(edge);
-    }
-
-    // 获取图的浅拷贝
-    private List<Vertex> getGraphValues() {
-        return graph.values().stream()
-            .collect(ArrayList::new, (vertices, vertex) -> {
-                    try {
-                        vertices.add(vertex.clone());
-                    } catch (Exception e) {
-                        throw new RuntimeException("Copy graph values error!");
-                    }
-                },
-                ArrayList::addAll);
+        Edge edge = new Edge(start, end);
+        edge.outIndex = start.adjEdges.size();
+        start.adjEdges.add(edge);
+        edge.inIndex = end.inEdges.size();
+        end.inEdges.add(edge);
+    }
+
+    // 删除一条有向边,不存在返回false
+    public boolean removeEdge(int fromId, int toId) {
+        Vertex from = graph.get(fromId);
+        if (from == null) {
+            return false;
+        }
+        for (Edge e : from.adjEdges) {
+            if (e.endVertex.id == toId) {
+                removeEdge(e);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 删除顶点及其所有边,拓扑序中留下空位,空位过半时整理
+    public boolean removeVertex(int id) {
+        Vertex vertex = graph.remove(id);
+        if (vertex == null) {
+            return false;
+        }
+        while (!vertex.adjEdges.isEmpty()) {
+            removeEdge(vertex.adjEdges.get(vertex.adjEdges.size() - 1));
+        }
+        while (!vertex.inEdges.isEmpty()) {
+            removeEdge(vertex.inEdges.get(vertex.inEdges.size() - 1));
+        }
+        removeReady(vertex);
+        // 最后一个顶点移到空出的序号
+        Vertex last = vertices.remove(vertices.size() - 1);
+        if (last != vertex) {
+            last.ordinal = vertex.ordinal;
+            vertices.set(last.ordinal, last);
+        }
+        if (orderValid) {
+            setOrder(vertex.position, null);
+            if (++tombstones > (front.size() + order.size()) >>> 1) {
+                compactOrder();
+            }
+        }
+        return true;
+    }
+
+    // 删除边,出边和入边列表中用最后一条边填补空位
+    private void removeEdge(Edge edge) {
+        Vertex start = edge.startVertex;
+        Vertex end = edge.endVertex;
+        Edge moved = start.adjEdges.remove(start.adjEdges.size() - 1);
+        if (moved != edge) {
+            moved.outIndex = edge.outIndex;
+            start.adjEdges.set(moved.outIndex, moved);
+        }
+        moved = end.inEdges.remove(end.inEdges.size() - 1);
+        if (moved != edge) {
+            moved.inIndex = edge.inIndex;
+            end.inEdges.set(moved.inIndex, moved);
+        }
+        if (--end.inDegree == 0) {
+            addReady(end);
+        }
+    }
+
+    private void addReady(Vertex vertex) {
+        vertex.readyIndex = ready.size();
+        ready.add(vertex);
+    }
+
+    private void removeReady(Vertex vertex) {
+        if (vertex.readyIndex < 0) {
+            return;
+        }
+        Vertex last = ready.remove(ready.size() - 1);
+        if (last != vertex) {
+            last.readyIndex = vertex.readyIndex;
+            ready.set(last.readyIndex, last);
+        }
+        vertex.readyIndex = -1;
+    }
+
+    // 拓扑序视图,槽位k为front逆序后接order,跳过空位,没有空位时按下标直接定位
+    private class OrderView extends AbstractSequentialList<Vertex> {
+
+        @Override
+        public int size() {
+            return front.size() + order.size() - tombstones;
+        }
+
+        private int slots() {
+            return front.size() + order.size();
+        }
+
+        private Vertex slot(int k) {
+            return k < front.size() ? front.get(front.size() - 1 - k) : order.get(k - front.size());
+        }
+
+        @Override
+        public ListIterator<Vertex> listIterator(int index) {
+            int size = size();
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (tombstones == 0 || index == size) {
+                return new OrderIterator(index, index == size ? slots() : index);
+            }
+            ListIterator<Vertex> it = new OrderIterator(0, 0);
+            for (int i = 0; i < index; i++) {
+                it.next();
+            }
+            return it;
+        }
+
+        private class OrderIterator implements ListIterator<Vertex> {
+
+            // 下一个元素的下标
+            private int index;
+
+            // 下一次向后查找的起始槽位
+            private int cursor;
+
+            private OrderIterator(int index, int cursor) {
+                this.index = index;
+                this.cursor = cursor;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public Vertex next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                // 跳过空位
+                Vertex v;
+                do {
+                    v = slot(cursor++);
+                } while (v == null);
+                index++;
+                return v;
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return index > 0;
+            }
+
+            @Override
+            public Vertex previous() {
+                if (!hasPrevious()) {
+                    throw new NoSuchElementException();
+                }
+                // 跳过空位
+                Vertex v;
+                do {
+                    v = slot(--cursor);
+                } while (v == null);
+                index--;
+                return v;
+            }
+
+            @Override
+            public int nextIndex() {
+                return index;
+            }
+
+            @Override
+            public int previousIndex() {
+                return index - 1;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void set(Vertex vertex) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void add(Vertex vertex) {
+                throw new UnsupportedOperationException();
+            }
+        }
     }
 
     // 定点
-    public class Vertex implements Cloneable, Comparable<Vertex> {
+    public class Vertex implements Comparable<Vertex> {
 
         // 顶点标识
         private int id;
 
+        // 顶点序号,按加入顺序从0开始
+        private int ordinal;
+
         // 边
         private List<Edge> adjEdges;
 
+        // 入边
+        private List<Edge> inEdges = new ArrayList<>();
+
+        // 在入度为0顶点列表中的位置,-1表示不在
+        private int readyIndex = -1;
+
+        // 维护的拓扑位置
+        private int position;
+
+        // 访问标记
+        private int mark;
+
         // 入度
         private int inDegree;
 
@@ -143,7 +742,7 @@ public class DirectedGraph<T> {
             this.id = id;
             this.inDegree = 0;
             this.weight = 0;
-            this.adjEdges = new LinkedList<>();
+            this.adjEdges = new ArrayList<>();
             this.content = content;
         }
 
@@ -151,7 +750,7 @@ public class DirectedGraph<T> {
             this.id = id;
             this.inDegree = 0;
             this.weight = weight;
-            this.adjEdges = new LinkedList<>();
+            this.adjEdges = new ArrayList<>();
             this.content = content;
         }
 
@@ -159,10 +758,18 @@ public class DirectedGraph<T> {
             return id;
         }
 
+        public int getOrdinal() {
+            return ordinal;
+        }
+
         public List<Edge> getAdjEdges() {
             return adjEdges;
         }
 
+        public List<Edge> getInEdges() {
+            return inEdges;
+        }
+
         public int getInDegree() {
             return inDegree;
         }
@@ -175,27 +782,92 @@ public class DirectedGraph<T> {
             return content;
         }
 
-        @Override
-        public Vertex clone() throws CloneNotSupportedException {
-            return (Vertex) super.clone();
-        }
-
         @Override
         public int compareTo(Vertex o) {
             return o.weight - this.weight;
         }
     }
 
+    // 关键路径,数组下标为顶点序号
+    public class CriticalPath {
+
+        // 关键路径长度,即最短完成时间
+        private final long length;
+
+        // 最早开始时间
+        private final long[] earliestStart;
+
+        // 最晚完成时间
+        private final long[] latestFinish;
+
+        // 关键路径,按拓扑顺序
+        private final List<Vertex> path;
+
+        private CriticalPath(long length, long[] earliestStart, long[] latestFinish, int[] pred) {
+            this.length = length;
+            this.earliestStart = earliestStart;
+            this.latestFinish = latestFinish;
+            LinkedList<Vertex> path = new LinkedList<>();
+            // 从最晚完成的顶点沿前驱回溯
+            int v = -1;
+            for (Vertex vertex : vertices) {
+                if (v < 0 && earliestStart[vertex.ordinal] + vertex.weight == length) {
+                    v = vertex.ordinal;
+                }
+            }
+            while (v >= 0) {
+                path.addFirst(vertices.get(v));
+                v = pred[v];
+            }
+            this.path = Collections.unmodifiableList(path);
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public List<Vertex> getPath() {
+            return path;
+        }
+
+        public long getEarliestStart(Vertex vertex) {
+            return earliestStart[vertex.ordinal];
+        }
+
+        public long getLatestStart(Vertex vertex) {
+            return latestFinish[vertex.ordinal] - vertex.weight;
+        }
+
+        // 松弛时间,为0的顶点在关键路径上
+        public long getSlack(Vertex vertex) {
+            return getLatestStart(vertex) - getEarliestStart(vertex);
+        }
+    }
+
     // 边
     public class Edge {
 
+        // 起始顶点
+        private Vertex startVertex;
+
         // 指向定点
         private Vertex endVertex;
 
-        public Edge(Vertex endVertex) {
+        // 在起始顶点出边列表中的位置
+        private int outIndex;
+
+        // 在指向顶点入边列表中的位置
+        private int inIndex;
+
+        public Edge(Vertex startVertex, Vertex endVertex) {
+            this.startVertex = startVertex;
             this.endVertex = endVertex;
         }
 
+        public Vertex getStartVertex() {
+            return startVertex;
+        }
+
         public Vertex getEndVertex() {
             return endVertex;
         }
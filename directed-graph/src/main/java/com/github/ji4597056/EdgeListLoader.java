@@ -0,0 +1,260 @@
+package com.github.ji4597056;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 从边列表文件流式加载有向图,分块读取,直接构建压缩稀疏行存储
+ * <p>
+ * 读取文件时给顶点编号,统计出度并按文件顺序记录每条边两端的编号,之后从记录填充出边,
+ * 文件只读一遍,不创建逐边或逐顶点的对象.支持两种格式:
+ * csv每行"from,to",忽略空行和#开头的行;二进制为连续的大端int对
+ *
+ * @author Jeffrey
+ * @since 2018/05/21 10:30
+ */
+public final class EdgeListLoader {
+
+    // 读取块大小
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private EdgeListLoader() {
+    }
+
+    public static CompactDirectedGraph<Void> loadCsv(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return loadCsv(channel);
+        }
+    }
+
+    // 从channel当前位置读到末尾,不改变channel的位置
+    public static CompactDirectedGraph<Void> loadCsv(FileChannel channel) throws IOException {
+        return load(channel, false);
+    }
+
+    public static CompactDirectedGraph<Void> loadBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return loadBinary(channel);
+        }
+    }
+
+    // 从channel当前位置读到末尾,不改变channel的位置
+    public static CompactDirectedGraph<Void> loadBinary(FileChannel channel) throws IOException {
+        return load(channel, true);
+    }
+
+    private static CompactDirectedGraph<Void> load(FileChannel channel, boolean binary)
+        throws IOException {
+        // 按出现顺序编号,统计出度,记录边两端的编号
+        Vertices vertices = new Vertices();
+        scan(channel, channel.position(), binary, vertices::addEdge);
+        int n = vertices.size;
+        int[] appearanceIds = vertices.ids;
+        int[] appearanceDegrees = vertices.degrees;
+        // 顶点按id升序重新编号
+        int[] ids = Arrays.copyOf(appearanceIds, n);
+        Arrays.sort(ids);
+        int[] remap = new int[n];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            remap[i] = Arrays.binarySearch(ids, appearanceIds[i]);
+            offsets[remap[i] + 1] = appearanceDegrees[i];
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        // 按文件顺序填充出边
+        int[] targets = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] edges = vertices.edges;
+        for (int i = 0; i < vertices.edgeSize; i += 2) {
+            targets[fill[remap[edges[i]]]++] = remap[edges[i + 1]];
+        }
+        return new CompactDirectedGraph<>(ids, new int[n], null, offsets, targets);
+    }
+
+    // 从start开始分块读取所有边
+    private static void scan(FileChannel channel, long start, boolean binary,
+        EdgeConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        CsvParser parser = binary ? null : new CsvParser(consumer);
+        long position = start;
+        int read;
+        while ((read = channel.read(buffer, position)) >= 0) {
+            position += read;
+            ((Buffer) buffer).flip();
+            if (binary) {
+                while (buffer.remaining() >= 8) {
+                    consumer.accept(buffer.getInt(), buffer.getInt());
+                }
+            } else {
+                parser.parse(buffer);
+            }
+            // 保留跨块的不完整记录
+            buffer.compact();
+        }
+        if (binary && buffer.position() != 0) {
+            throw new IllegalArgumentException("Truncated binary edge list!");
+        }
+        if (!binary) {
+            parser.finish();
+        }
+    }
+
+    // 扫描到的顶点,下标为出现顺序编号
+    private static final class Vertices {
+
+        private final IntIntMap ordinals = new IntIntMap(1024);
+
+        private int[] ids = new int[1024];
+
+        // 出度
+        private int[] degrees = new int[1024];
+
+        private int size;
+
+        // 每条边起点和终点的出现顺序编号,依次存放
+        private int[] edges = new int[2048];
+
+        private int edgeSize;
+
+        private void addEdge(int from, int to) {
+            int fromOrdinal = ordinalOf(from);
+            int toOrdinal = ordinalOf(to);
+            degrees[fromOrdinal]++;
+            if (edgeSize == edges.length) {
+                edges = Arrays.copyOf(edges, edgeSize << 1);
+            }
+            edges[edgeSize++] = fromOrdinal;
+            edges[edgeSize++] = toOrdinal;
+        }
+
+        // 获取顶点的出现顺序编号,新顶点追加到末尾
+        private int ordinalOf(int id) {
+            int ordinal = ordinals.putIfAbsent(id, size);
+            if (ordinal >= 0) {
+                return ordinal;
+            }
+            ordinal = size++;
+            if (ordinal == ids.length) {
+                ids = Arrays.copyOf(ids, ordinal << 1);
+                degrees = Arrays.copyOf(degrees, ordinal << 1);
+            }
+            ids[ordinal] = id;
+            return ordinal;
+        }
+    }
+
+    // 边的消费者
+    private interface EdgeConsumer {
+
+        void accept(int from, int to);
+    }
+
+    // csv解析,状态跨块保留
+    private static final class CsvParser {
+
+        private final EdgeConsumer consumer;
+
+        // 行号
+        private long line = 1;
+
+        // 当前字段,0=from,1=to
+        private int field;
+
+        private long value;
+
+        private boolean negative;
+
+        private boolean hasDigit;
+
+        // 当前字段的数字后出现了空白,之后不能再有数字
+        private boolean valueEnded;
+
+        // 注释行
+        private boolean comment;
+
+        // 行首,之后只能是空白
+        private boolean lineStart = true;
+
+        private int from;
+
+        private CsvParser(EdgeConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        private void parse(ByteBuffer buffer) {
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    endLine();
+                } else if (comment || b == '\r') {
+                    // 忽略
+                } else if (b == ' ' || b == '\t') {
+                    // 字段内的空白结束当前数字,"1 2"不能读成12
+                    valueEnded = hasDigit || negative;
+                } else if (b == '#' && lineStart) {
+                    comment = true;
+                } else if (b == ',' && field == 0 && hasDigit) {
+                    from = checkedValue();
+                    field = 1;
+                    resetValue();
+                } else if (b == '-' && !hasDigit && !negative) {
+                    negative = true;
+                    lineStart = false;
+                } else if (b >= '0' && b <= '9' && !valueEnded) {
+                    value = value * 10 + (b - '0');
+                    if (value > Integer.MAX_VALUE + 1L) {
+                        throw malformed();
+                    }
+                    hasDigit = true;
+                    lineStart = false;
+                } else {
+                    throw malformed();
+                }
+            }
+        }
+
+        private void finish() {
+            endLine();
+        }
+
+        private void endLine() {
+            if (!comment && !lineStart) {
+                if (field != 1 || !hasDigit) {
+                    throw malformed();
+                }
+                consumer.accept(from, checkedValue());
+            }
+            line++;
+            field = 0;
+            comment = false;
+            lineStart = true;
+            resetValue();
+        }
+
+        private int checkedValue() {
+            long result = negative ? -value : value;
+            if (result > Integer.MAX_VALUE) {
+                throw malformed();
+            }
+            return (int) result;
+        }
+
+        private void resetValue() {
+            value = 0;
+            negative = false;
+            hasDigit = false;
+            valueEnded = false;
+        }
+
+        private IllegalArgumentException malformed() {
+            return new IllegalArgumentException("Malformed edge at line " + line + "!");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+
+/**
+ * int到非负int的开放寻址哈希表,没有装箱
+ *
+ * @author Jeffrey
+ * @since 2018/05/21 11:10
+ */
+class IntIntMap {
+
+    // 空槽位
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+
+    // 值,EMPTY表示空槽位
+    private int[] values;
+
+    private int size;
+
+    // 扩容阈值
+    private int threshold;
+
+    IntIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        this.threshold = capacity >>> 1;
+    }
+
+    // 获取值,不存在返回-1
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); values[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return EMPTY;
+    }
+
+    // 不存在时放入,返回已有的值,不存在返回-1
+    int putIfAbsent(int key, int value) {
+        assert value >= 0;
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; values[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length << 1];
+        values = new int[oldKeys.length << 1];
+        Arrays.fill(values, EMPTY);
+        threshold = keys.length >>> 1;
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != EMPTY) {
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.ji4597056;
+
+/**
+ * 顶点序号的二叉堆,权重大的优先,权重相同时序号小的优先
+ *
+ * @author Jeffrey
+ * @since 2018/05/14 10:20
+ */
+class IntPriorityQueue {
+
+    // 堆
+    private final int[] heap;
+
+    // 顶点权重,下标为顶点序号
+    private final int[] weights;
+
+    // 元素个数
+    private int size;
+
+    IntPriorityQueue(int capacity, int[] weights) {
+        this.heap = new int[capacity];
+        this.weights = weights;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void offer(int ordinal) {
+        int i = size++;
+        // 上浮
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(ordinal, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = ordinal;
+    }
+
+    int poll() {
+        int result = heap[0];
+        int last = heap[--size];
+        int i = 0;
+        // 下沉
+        int half = size >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], last)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return result;
+    }
+
+    // a是否排在b前面
+    private boolean before(int a, int b) {
+        return weights[a] != weights[b] ? weights[a] > weights[b] : a < b;
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.ji4597056;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * 可达性索引,有环时在强连通分量的缩点图上建立
+ * <p>
+ * 查询依次尝试:拓扑编号剪枝(分量编号是拓扑序,只能从小到大可达);生成树区间标号,后代必然可达;
+ * GRAIL随机区间标号,区间不包含必然不可达;都不能判断时用区间标号剪枝的深度优先搜索.
+ * 索引不可变,可以并发查询
+ *
+ * @author Jeffrey
+ * @since 2018/05/24 16:40
+ */
+public class ReachabilityIndex {
+
+    // 默认随机遍历次数
+    private static final int DEFAULT_TRAVERSALS = 3;
+
+    private final CompactDirectedGraph<?> graph;
+
+    private final StronglyConnectedComponents components;
+
+    // 缩点图,下标为分量编号
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    // 生成树先序编号及子树内最大先序编号
+    private final int[] pre;
+
+    private final int[] preEnd;
+
+    // GRAIL区间[low, post],第t次遍历的分量c位于下标t * 分量数 + c
+    private final int[] low;
+
+    private final int[] post;
+
+    private final int traversals;
+
+    // 每个线程的搜索临时数组
+    private final ThreadLocal<Scratch> scratch;
+
+    ReachabilityIndex(CompactDirectedGraph<?> graph) {
+        this(graph, DEFAULT_TRAVERSALS, 0x5DEECE66DL);
+    }
+
+    ReachabilityIndex(CompactDirectedGraph<?> graph, int traversals, long seed) {
+        this.graph = graph;
+        this.components = graph.stronglyConnectedComponents();
+        int[][] edges = components.condensedEdges();
+        this.offsets = edges[0];
+        this.targets = edges[1];
+        int m = components.getCount();
+        this.traversals = traversals;
+        this.pre = new int[m];
+        this.preEnd = new int[m];
+        this.low = new int[traversals * m];
+        this.post = new int[traversals * m];
+        Random random = new Random(seed);
+        for (int t = 0; t < traversals; t++) {
+            label(t, random);
+        }
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(m));
+    }
+
+    // 第t次随机后序遍历,t=0时同时记录生成树先序区间
+    private void label(int t, Random random) {
+        int m = pre.length;
+        int base = t * m;
+        boolean[] visited = new boolean[m];
+        int[] stack = new int[m];
+        int[] cursor = new int[m];
+        // 子节点从随机位置开始轮转访问
+        int[] rotation = new int[m];
+        int[] roots = new int[m];
+        for (int c = 0; c < m; c++) {
+            roots[c] = c;
+            int degree = offsets[c + 1] - offsets[c];
+            rotation[c] = degree == 0 ? 0 : random.nextInt(degree);
+        }
+        for (int i = m - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int root = roots[i];
+            roots[i] = roots[j];
+            roots[j] = root;
+        }
+        int preCounter = 0;
+        int postCounter = 0;
+        for (int root : roots) {
+            if (visited[root]) {
+                continue;
+            }
+            int top = 0;
+            stack[0] = root;
+            visited[root] = true;
+            cursor[root] = 0;
+            low[base + root] = Integer.MAX_VALUE;
+            if (t == 0) {
+                pre[root] = preCounter++;
+            }
+            while (top >= 0) {
+                int v = stack[top];
+                int degree = offsets[v + 1] - offsets[v];
+                if (cursor[v] < degree) {
+                    int w = targets[offsets[v] + (rotation[v] + cursor[v]++) % degree];
+                    if (!visited[w]) {
+                        visited[w] = true;
+                        cursor[w] = 0;
+                        low[base + w] = Integer.MAX_VALUE;
+                        if (t == 0) {
+                            pre[w] = preCounter++;
+                        }
+                        stack[++top] = w;
+                    } else {
+                        low[base + v] = Math.min(low[base + v], low[base + w]);
+                    }
+                    continue;
+                }
+                post[base + v] = postCounter++;
+                low[base + v] = Math.min(low[base + v], post[base + v]);
+                if (t == 0) {
+                    preEnd[v] = preCounter - 1;
+                }
+                if (--top >= 0) {
+                    int u = stack[top];
+                    low[base + u] = Math.min(low[base + u], low[base + v]);
+                }
+            }
+        }
+    }
+
+    // from是否可以到达to,顶点可以到达自身
+    public boolean reachable(int fromId, int toId) {
+        int[] componentOf = components.componentOf();
+        int u = componentOf[graph.ordinalOf(fromId)];
+        int v = componentOf[graph.ordinalOf(toId)];
+        if (u == v) {
+            return true;
+        }
+        Boolean cut = cut(u, v);
+        return cut != null ? cut : search(u, v);
+    }
+
+    // 用标号判断,无法判断返回null
+    private Boolean cut(int u, int v) {
+        if (u > v) {
+            return false;
+        }
+        if (pre[u] <= pre[v] && preEnd[v] <= preEnd[u]) {
+            return true;
+        }
+        return contains(u, v) ? null : false;
+    }
+
+    // u的所有GRAIL区间是否包含v的区间
+    private boolean contains(int u, int v) {
+        int m = pre.length;
+        for (int base = 0; base < traversals * m; base += m) {
+            if (low[base + v] < low[base + u] || post[base + v] > post[base + u]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 剪枝的深度优先搜索
+    private boolean search(int u, int v) {
+        Scratch s = scratch.get();
+        int epoch = s.nextEpoch();
+        int top = 0;
+        s.stack[0] = u;
+        s.mark[u] = epoch;
+        while (top >= 0) {
+            int c = s.stack[top--];
+            for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+                int w = targets[e];
+                if (s.mark[w] == epoch) {
+                    continue;
+                }
+                s.mark[w] = epoch;
+                if (w == v) {
+                    return true;
+                }
+                Boolean cut = cut(w, v);
+                if (cut == null) {
+                    s.stack[++top] = w;
+                } else if (cut) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 从id可以到达的所有顶点,包括自身,位下标为紧凑图的顶点序号(id升序的排名),用getId转换为顶点id
+    public BitSet descendants(int id) {
+        int[] componentOf = components.componentOf();
+        int[] memberOffsets = components.memberOffsets();
+        int[] members = components.members();
+        BitSet result = new BitSet(graph.size());
+        Scratch s = scratch.get();
+        int epoch = s.nextEpoch();
+        int u = componentOf[graph.ordinalOf(id)];
+        int top = 0;
+        s.stack[0] = u;
+        s.mark[u] = epoch;
+        while (top >= 0) {
+            int c = s.stack[top--];
+            for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+                result.set(members[i]);
+            }
+            for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+                int w = targets[e];
+                if (s.mark[w] != epoch) {
+                    s.mark[w] = epoch;
+                    s.stack[++top] = w;
+                }
+            }
+        }
+        return result;
+    }
+
+    // 序号对应的顶点id,与DirectedGraph的顶点序号无关
+    public int getId(int ordinal) {
+        return graph.getId(ordinal);
+    }
+
+    // 搜索临时数组,mark等于当前epoch表示已访问
+    private static final class Scratch {
+
+        private final int[] mark;
+
+        private final int[] stack;
+
+        private int epoch;
+
+        private Scratch(int size) {
+            this.mark = new int[size];
+            this.stack = new int[size];
+        }
+
+        private int nextEpoch() {
+            if (++epoch == 0) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+}
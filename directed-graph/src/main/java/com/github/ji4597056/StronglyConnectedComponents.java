@@ -0,0 +1,263 @@
+package com.github.ji4597056;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 强连通分量,非递归Tarjan算法,只使用按顶点序号的基本类型数组
+ * <p>
+ * 分量按拓扑顺序编号,缩点图的边总是从编号小的分量指向编号大的分量
+ *
+ * @author Jeffrey
+ * @since 2018/05/17 14:30
+ */
+public class StronglyConnectedComponents {
+
+    private final CompactDirectedGraph<?> graph;
+
+    // 分量个数
+    private final int count;
+
+    // 顶点所属分量,下标为顶点序号
+    private final int[] componentOf;
+
+    // 分量的顶点序号为members[offsets[c]..offsets[c + 1])
+    private final int[] offsets;
+
+    private final int[] members;
+
+    // 每个非平凡分量的一个环,顶点id
+    private final List<int[]> cycles;
+
+    StronglyConnectedComponents(CompactDirectedGraph<?> graph) {
+        this.graph = graph;
+        int n = graph.size();
+        int[] edgeOffsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];
+        Arrays.fill(component, -1);
+        // Tarjan栈
+        int[] stack = new int[n];
+        int sp = 0;
+        // 模拟递归的调用栈,next为每个顶点下一条待访问的边
+        int[] calls = new int[n];
+        int[] next = new int[n];
+        int counter = 0;
+        int found = 0;
+        for (int s = 0; s < n; s++) {
+            if (index[s] != 0) {
+                continue;
+            }
+            int top = 0;
+            calls[0] = s;
+            index[s] = low[s] = ++counter;
+            stack[sp++] = s;
+            next[s] = edgeOffsets[s];
+            while (top >= 0) {
+                int v = calls[top];
+                if (next[v] < edgeOffsets[v + 1]) {
+                    int w = targets[next[v]++];
+                    if (index[w] == 0) {
+                        // 递归访问w
+                        index[w] = low[w] = ++counter;
+                        stack[sp++] = w;
+                        next[w] = edgeOffsets[w];
+                        calls[++top] = w;
+                    } else if (component[w] < 0) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                // v的边访问完毕,v为根时弹出分量
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        component[w] = found;
+                    } while (w != v);
+                    found++;
+                }
+                if (--top >= 0) {
+                    int u = calls[top];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        // Tarjan按逆拓扑顺序得到分量,反转编号
+        for (int v = 0; v < n; v++) {
+            component[v] = found - 1 - component[v];
+        }
+        this.count = found;
+        this.componentOf = component;
+        this.offsets = new int[found + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[component[v] + 1]++;
+        }
+        for (int c = 0; c < found; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        this.members = new int[n];
+        int[] fill = Arrays.copyOf(offsets, found);
+        for (int v = 0; v < n; v++) {
+            members[fill[component[v]]++] = v;
+        }
+        this.cycles = Collections.unmodifiableList(findCycles(edgeOffsets, targets));
+    }
+
+    // 每个非平凡分量从第一个顶点广度优先搜索,找到回到它的最短环
+    private List<int[]> findCycles(int[] edgeOffsets, int[] targets) {
+        List<int[]> result = new ArrayList<>();
+        int n = componentOf.length;
+        int[] parent = new int[n];
+        int[] queue = new int[n];
+        // 本次搜索已访问的顶点标记为分量编号+1
+        int[] mark = new int[n];
+        for (int c = 0; c < count; c++) {
+            int root = members[offsets[c]];
+            if (offsets[c + 1] - offsets[c] == 1 && !hasEdge(edgeOffsets, targets, root, root)) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            parent[root] = root;
+            mark[root] = c + 1;
+            int last = -1;
+            while (head < tail && last < 0) {
+                int v = queue[head++];
+                for (int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++) {
+                    int w = targets[e];
+                    if (componentOf[w] != c) {
+                        continue;
+                    }
+                    if (w == root) {
+                        last = v;
+                        break;
+                    }
+                    if (mark[w] != c + 1) {
+                        mark[w] = c + 1;
+                        parent[w] = v;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            int length = 1;
+            for (int v = last; v != root; v = parent[v]) {
+                length++;
+            }
+            int[] cycle = new int[length];
+            for (int v = last, i = length - 1; i >= 0; v = parent[v], i--) {
+                cycle[i] = graph.getId(v);
+            }
+            result.add(cycle);
+        }
+        return result;
+    }
+
+    private static boolean hasEdge(int[] edgeOffsets, int[] targets, int from, int to) {
+        for (int e = edgeOffsets[from]; e < edgeOffsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int[] componentOf() {
+        return componentOf;
+    }
+
+    int[] memberOffsets() {
+        return offsets;
+    }
+
+    int[] members() {
+        return members;
+    }
+
+    // 分量个数
+    public int getCount() {
+        return count;
+    }
+
+    // 顶点id所属分量
+    public int getComponent(int id) {
+        return componentOf[graph.ordinalOf(id)];
+    }
+
+    // 分量的顶点id
+    public int[] getMembers(int component) {
+        int[] result = new int[offsets[component + 1] - offsets[component]];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = graph.getId(members[offsets[component] + i]);
+        }
+        return result;
+    }
+
+    // 所有分量的顶点id,按拓扑顺序
+    public List<int[]> getComponents() {
+        List<int[]> result = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            result.add(getMembers(c));
+        }
+        return result;
+    }
+
+    // 每个非平凡分量(多于一个顶点或有自环)的一个环,c[0] -> c[1] -> ... -> c[0]
+    public List<int[]> getCycles() {
+        return cycles;
+    }
+
+    // 是否有环
+    public boolean hasCircle() {
+        return !cycles.isEmpty();
+    }
+
+    // 缩点图,顶点id为分量编号,权重为分量内顶点权重之和,不保存内容,分量的顶点id用getMembers获取
+    public CompactDirectedGraph<Void> condensation() {
+        int[] ids = new int[count];
+        int[] weights = new int[count];
+        for (int c = 0; c < count; c++) {
+            ids[c] = c;
+            for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                weights[c] += graph.getWeight(members[i]);
+            }
+        }
+        int[][] edges = condensedEdges();
+        return new CompactDirectedGraph<>(ids, weights, null, edges[0], edges[1]);
+    }
+
+    // 缩点图的压缩稀疏行,返回{offsets, targets},下标为分量编号
+    int[][] condensedEdges() {
+        int[] edgeOffsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] condensedOffsets = new int[count + 1];
+        // 每个分量最后一次连到的分量,用于去重
+        int[] seen = new int[count];
+        Arrays.fill(seen, -1);
+        int[] condensedTargets = new int[0];
+        int size = 0;
+        for (int c = 0; c < count; c++) {
+            for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                int v = members[i];
+                for (int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++) {
+                    int d = componentOf[targets[e]];
+                    if (d != c && seen[d] != c) {
+                        seen[d] = c;
+                        if (size == condensedTargets.length) {
+                            condensedTargets = Arrays.copyOf(condensedTargets,
+                                Math.max(16, size << 1));
+                        }
+                        condensedTargets[size++] = d;
+                    }
+                }
+            }
+            condensedOffsets[c + 1] = size;
+        }
+        return new int[][]{condensedOffsets, Arrays.copyOf(condensedTargets, size)};
+    }
+}
@@ -1,6 +1,21 @@
 package com.github.ji4597056;
 
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -92,10 +107,299 @@ public class DirectedGraphTest {
         g2.topoSort().forEach(vertex -> System.out.print(vertex.getContent() + " "));
     }
 
+    private String contents(List<DirectedGraph<String>.Vertex> vertices) {
+        return vertices.stream().map(DirectedGraph.Vertex::getContent).collect(Collectors.joining());
+    }
+
     @Test
     public void hasCircle() {
         Assert.assertTrue(!g1.hasCircle());
         Assert.assertTrue(!g2.hasCircle());
         Assert.assertTrue(g3.hasCircle());
     }
+
+    @Test
+    public void topoSortRepeatable() {
+        String first = contents(g2.topoSort());
+        Assert.assertEquals(first, "acfgbde");
+        // 排序不修改入度,可重复调用
+        Assert.assertEquals(contents(g2.topoSort()), first);
+        Assert.assertTrue(!g2.hasCircle());
+        Assert.assertEquals(g2.compact().getInDegree(3), 2);
+        Assert.assertTrue(g3.hasCircle());
+        Assert.assertTrue(g3.hasCircle());
+    }
+
+    @Test
+    public void topoLevels() {
+        List<String> levels = g2.topoLevels().stream().map(this::contents)
+            .collect(Collectors.toList());
+        Assert.assertEquals(levels, Arrays.asList("afe", "gcb", "d"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void topoLevelsCircle() {
+        g3.topoLevels();
+    }
+
+    @Test
+    public void execute() throws Exception {
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        // 1000个顶点,i依赖i/2
+        IntStream.range(1, 1000).forEach(
+            i -> graph.add(new GraphNode<>(i / 2, i / 2), new GraphNode<>(i, i)));
+        Set<Integer> done = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            graph.execute(i -> {
+                Assert.assertTrue(i == 0 || done.contains(i / 2));
+                return done.add(i);
+            }, executor).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(done.size(), 1000);
+    }
+
+    @Test
+    public void executeFailed() throws Exception {
+        CompletableFuture<Void> future = g1.execute(content -> {
+            if (content.equals("b")) {
+                throw new IllegalStateException(content);
+            }
+            return content;
+        });
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void addIfAcyclic() {
+        DirectedGraph<String> graph = new DirectedGraph<>();
+        GraphNode<String> a = new GraphNode<>(1, "a");
+        GraphNode<String> b = new GraphNode<>(2, "b");
+        GraphNode<String> c = new GraphNode<>(3, "c");
+        Assert.assertTrue(graph.addIfAcyclic(c, b));
+        Assert.assertTrue(graph.addIfAcyclic(b, a));
+        Assert.assertFalse(graph.addIfAcyclic(a, c));
+        Assert.assertFalse(graph.addIfAcyclic(a, a));
+        Assert.assertTrue(graph.addIfAcyclic(c, a));
+        Assert.assertEquals(contents(graph.topoOrder()), "cba");
+        Assert.assertTrue(!graph.hasCircle());
+    }
+
+    @Test
+    public void addIfAcyclicRandom() {
+        Random random = new Random(7);
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        DirectedGraph<Integer> expected = new DirectedGraph<>();
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            GraphNode<Integer> from = new GraphNode<>(random.nextInt(100), 0);
+            GraphNode<Integer> to = new GraphNode<>(random.nextInt(100), 0);
+            expected.add(from, to);
+            boolean acyclic = !expected.hasCircle();
+            if (!acyclic) {
+                expected.clear();
+                edges.forEach(edge -> expected.add(new GraphNode<>(edge[0], 0),
+                    new GraphNode<>(edge[1], 0)));
+            } else {
+                edges.add(new int[]{from.getId(), to.getId()});
+            }
+            Assert.assertEquals(graph.addIfAcyclic(from, to), acyclic);
+        }
+        Map<Integer, Integer> positions = new HashMap<>();
+        List<DirectedGraph<Integer>.Vertex> order = graph.topoOrder();
+        for (int i = 0; i < order.size(); i++) {
+            positions.put(order.get(i).getId(), i);
+        }
+        edges.forEach(edge -> Assert.assertTrue(positions.get(edge[0]) < positions.get(edge[1])));
+        // 普通add形成环时作废拓扑序
+        graph.add(new GraphNode<>(edges.get(0)[1], 0), new GraphNode<>(edges.get(0)[0], 0));
+        Assert.assertTrue(graph.hasCircle());
+    }
+
+    @Test(timeout = 10000)
+    public void addIfAcyclicReverseChain() {
+        // 从终点向起点建链,每次的起始顶点都是新顶点,不需要调整拓扑序
+        int n = 50000;
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int i = n - 1; i > 0; i--) {
+            Assert.assertTrue(graph.addIfAcyclic(new GraphNode<>(i - 1, i - 1), new GraphNode<>(i, i)));
+        }
+        Assert.assertFalse(graph.addIfAcyclic(new GraphNode<>(n - 1, n - 1), new GraphNode<>(0, 0)));
+        List<DirectedGraph<Integer>.Vertex> order = graph.topoOrder();
+        Assert.assertEquals(order.size(), n);
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(order.get(i).getId(), i);
+        }
+    }
+
+    @Test
+    public void criticalPath() {
+        for (DirectedGraph<String>.CriticalPath path : Arrays
+            .asList(g2.criticalPath(), g2.parallelCriticalPath())) {
+            Assert.assertEquals(path.getLength(), 6);
+            Assert.assertEquals(contents(path.getPath()), "acd");
+            Map<String, Long> slacks = new HashMap<>();
+            g2.topoSort().forEach(vertex -> slacks.put(vertex.getContent(), path.getSlack(vertex)));
+            Assert.assertEquals(slacks.toString(), "{a=0, b=1, c=0, d=0, e=5, f=1, g=1}");
+            Assert.assertEquals(path.getEarliestStart(path.getPath().get(2)), 5);
+        }
+    }
+
+    @Test
+    public void stronglyConnectedComponents() {
+        StronglyConnectedComponents scc = g3.stronglyConnectedComponents();
+        Assert.assertEquals(scc.getCount(), 4);
+        Assert.assertArrayEquals(scc.getMembers(scc.getComponent(4)), new int[]{1, 2, 3, 4});
+        Assert.assertEquals(scc.getCycles().size(), 1);
+        assertCycle(g3.compact(), scc.getCycles().get(0));
+        CompactDirectedGraph<Void> condensation = scc.condensation();
+        Assert.assertTrue(!condensation.hasCircle());
+        Assert.assertEquals(condensation.size(), 4);
+        // 只有f --> g一条分量间的边,分量内容不保存
+        Assert.assertEquals(condensation.edgeSize(), 1);
+        Assert.assertEquals(condensation.getTarget(scc.getComponent(6), 0), scc.getComponent(7));
+        Assert.assertNull(condensation.getContent(scc.getComponent(1)));
+        Assert.assertTrue(scc.getComponent(6) < scc.getComponent(7));
+        Assert.assertTrue(!g1.stronglyConnectedComponents().hasCircle());
+        Assert.assertEquals(g1.stronglyConnectedComponents().getCount(), 7);
+    }
+
+    @Test
+    public void stronglyConnectedComponentsLarge() {
+        // 100万个顶点的环,非递归不会栈溢出
+        int n = 1000000;
+        int[] ids = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            offsets[i + 1] = i + 1;
+            targets[i] = (i + 1) % n;
+        }
+        CompactDirectedGraph<String> graph = new CompactDirectedGraph<>(ids, new int[n],
+            new Object[n], offsets, targets);
+        StronglyConnectedComponents scc = graph.stronglyConnectedComponents();
+        Assert.assertEquals(scc.getCount(), 1);
+        Assert.assertEquals(scc.getCycles().get(0).length, n);
+        assertCycle(graph, scc.getCycles().get(0));
+    }
+
+    private void assertCycle(CompactDirectedGraph<?> graph, int[] cycle) {
+        for (int i = 0; i < cycle.length; i++) {
+            int from = graph.ordinalOf(cycle[i]);
+            int to = graph.ordinalOf(cycle[(i + 1) % cycle.length]);
+            Assert.assertTrue(IntStream.range(0, graph.getOutDegree(from))
+                .anyMatch(e -> graph.getTarget(from, e) == to));
+        }
+    }
+
+    @Test
+    public void removeVertex() {
+        Assert.assertEquals(contents(g1.getReadyVertices()), "aef");
+        // 完成a后b,c就绪
+        Assert.assertTrue(g1.removeVertex(1));
+        Assert.assertEquals(sorted(contents(g1.getReadyVertices())), "bcef");
+        Assert.assertTrue(g1.removeEdge(6, 7));
+        Assert.assertFalse(g1.removeEdge(6, 7));
+        Assert.assertEquals(sorted(contents(g1.getReadyVertices())), "bcefg");
+        Assert.assertFalse(g1.removeVertex(1));
+        // f移到a空出的顶点序号
+        Assert.assertEquals(contents(g1.topoSort()), "bfcdeg");
+        Assert.assertEquals(g1.compact().size(), 6);
+        // 删除环上的边后无环
+        Assert.assertTrue(g3.removeEdge(4, 1));
+        Assert.assertTrue(!g3.hasCircle());
+    }
+
+    @Test
+    public void topoOrderWithTombstones() {
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int i = 1; i < 10; i++) {
+            graph.add(new GraphNode<>(i - 1, i - 1, 1), new GraphNode<>(i, i, 1));
+        }
+        List<DirectedGraph<Integer>.Vertex> order = graph.topoOrder();
+        Assert.assertTrue(graph.removeVertex(3));
+        Assert.assertTrue(graph.removeVertex(5));
+        // 视图跳过空位,读取不整理拓扑序
+        Assert.assertEquals(order.size(), 8);
+        Assert.assertEquals(order.get(4).getId(), 6);
+        List<Integer> reversed = new ArrayList<>();
+        for (ListIterator<DirectedGraph<Integer>.Vertex> it = order.listIterator(order.size());
+            it.hasPrevious(); ) {
+            reversed.add(it.previous().getId());
+        }
+        Assert.assertEquals(reversed, Arrays.asList(9, 8, 7, 6, 4, 2, 1, 0));
+        Assert.assertEquals(graph.criticalPath().getLength(), 4);
+    }
+
+    @Test
+    public void removeRandom() {
+        Random random = new Random(11);
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < 3000; i++) {
+            int from = random.nextInt(60);
+            int to = random.nextInt(60);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                graph.addIfAcyclic(new GraphNode<>(from, from), new GraphNode<>(to, to));
+            } else if (op < 9) {
+                graph.removeEdge(from, to);
+            } else {
+                graph.removeVertex(from);
+            }
+            if (i % 100 == 0) {
+                assertMaintained(graph);
+            }
+        }
+        assertMaintained(graph);
+    }
+
+    // 拓扑序满足所有边,就绪集合即入度为0的顶点
+    private void assertMaintained(DirectedGraph<Integer> graph) {
+        List<DirectedGraph<Integer>.Vertex> order = graph.topoOrder();
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (DirectedGraph<Integer>.Vertex vertex : order) {
+            positions.put(vertex.getId(), positions.size());
+        }
+        Assert.assertEquals(positions.size(), graph.compact().size());
+        Assert.assertEquals(order.size(), positions.size());
+        Set<Integer> ready = graph.getReadyVertices().stream().map(DirectedGraph.Vertex::getId)
+            .collect(Collectors.toSet());
+        for (DirectedGraph<Integer>.Vertex vertex : order) {
+            Assert.assertEquals(vertex.getInDegree(), vertex.getInEdges().size());
+            Assert.assertEquals(ready.contains(vertex.getId()), vertex.getInDegree() == 0);
+            for (DirectedGraph<Integer>.Edge edge : vertex.getAdjEdges()) {
+                Assert.assertTrue(positions.get(vertex.getId()) < positions
+                    .get(edge.getEndVertex().getId()));
+            }
+        }
+        Assert.assertEquals(ready.size(), graph.getReadyVertices().size());
+    }
+
+    private String sorted(String contents) {
+        char[] chars = contents.toCharArray();
+        Arrays.sort(chars);
+        return new String(chars);
+    }
+
+    @Test
+    public void compact() {
+        CompactDirectedGraph<String> c2 = g2.compact();
+        Assert.assertEquals(c2.size(), 7);
+        Assert.assertEquals(c2.edgeSize(), 5);
+        Assert.assertEquals(c2.getInDegree(c2.ordinalOf(4)), 2);
+        Assert.assertEquals(c2.getContent(c2.getTarget(c2.ordinalOf(6), 0)), "g");
+        // 权重大的优先,权重相同时id小的优先
+        Assert.assertArrayEquals(c2.topoSort(), new int[]{1, 3, 6, 7, 2, 4, 5});
+        Assert.assertArrayEquals(c2.topoSort(), new int[]{1, 3, 6, 7, 2, 4, 5});
+        Assert.assertTrue(!g1.compact().hasCircle());
+        Assert.assertTrue(g3.compact().hasCircle());
+    }
 }
\ No newline at end of file
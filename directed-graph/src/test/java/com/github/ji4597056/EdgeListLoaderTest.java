@@ -0,0 +1,111 @@
+package com.github.ji4597056;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Jeffrey
+ * @since 2018/05/21 15:20
+ */
+public class EdgeListLoaderTest {
+
+    @Test
+    public void loadCsv() throws IOException {
+        Path path = Files.createTempFile("edges", ".csv");
+        try {
+            Files.write(path, "# from,to\n1,2\r\n1, 3\n\n2,4\n3,4\n6,7\n-1,1".getBytes(
+                StandardCharsets.US_ASCII));
+            CompactDirectedGraph<Void> graph = EdgeListLoader.loadCsv(path);
+            Assert.assertEquals(graph.size(), 7);
+            Assert.assertEquals(graph.edgeSize(), 6);
+            Assert.assertArrayEquals(graph.topoSort(), new int[]{-1, 1, 2, 3, 4, 6, 7});
+            Assert.assertEquals(graph.getInDegree(graph.ordinalOf(4)), 2);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void loadMalformedCsv() throws IOException {
+        Path path = Files.createTempFile("edges", ".csv");
+        try {
+            Files.write(path, "1,2\n3\n".getBytes(StandardCharsets.US_ASCII));
+            EdgeListLoader.loadCsv(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void loadSpaceInsideValue() throws IOException {
+        // 字段内数字之间的空白不能被忽略
+        for (String csv : new String[]{"1 2,3\n", "1,2 3\n", "- 1,2\n"}) {
+            Path path = Files.createTempFile("edges", ".csv");
+            try {
+                Files.write(path, csv.getBytes(StandardCharsets.US_ASCII));
+                EdgeListLoader.loadCsv(path);
+                Assert.fail(csv);
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals(e.getMessage(), "Malformed edge at line 1!");
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void loadLarge() throws IOException {
+        // 跨越多个读取块,csv与二进制结果一致
+        Random random = new Random(1);
+        int edges = 200000;
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        long[] degrees = new long[1000];
+        for (int i = 0; i < edges; i++) {
+            from[i] = random.nextInt(1000);
+            to[i] = random.nextInt(1000);
+            degrees[from[i]]++;
+        }
+        Path csv = Files.createTempFile("edges", ".csv");
+        Path binary = Files.createTempFile("edges", ".bin");
+        try {
+            StringBuilder builder = new StringBuilder();
+            try (OutputStream out = Files.newOutputStream(binary);
+                DataOutputStream data = new DataOutputStream(out)) {
+                for (int i = 0; i < edges; i++) {
+                    builder.append(from[i]).append(',').append(to[i]).append('\n');
+                    data.writeInt(from[i]);
+                    data.writeInt(to[i]);
+                }
+            }
+            Files.write(csv, builder.toString().getBytes(StandardCharsets.US_ASCII));
+            CompactDirectedGraph<Void> graph = EdgeListLoader.loadCsv(csv);
+            CompactDirectedGraph<Void> binaryGraph;
+            try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+                binaryGraph = EdgeListLoader.loadBinary(channel);
+            }
+            Assert.assertEquals(graph.edgeSize(), edges);
+            Assert.assertEquals(binaryGraph.edgeSize(), edges);
+            for (int ordinal = 0; ordinal < graph.size(); ordinal++) {
+                Assert.assertEquals(graph.getOutDegree(ordinal), degrees[graph.getId(ordinal)]);
+                Assert.assertEquals(graph.getId(ordinal), binaryGraph.getId(ordinal));
+                Assert.assertEquals(graph.getInDegree(ordinal), binaryGraph.getInDegree(ordinal));
+            }
+            // 出边顺序与文件顺序一致
+            int first = graph.ordinalOf(from[0]);
+            Assert.assertEquals(graph.getId(graph.getTarget(first, 0)), to[0]);
+        } finally {
+            Files.delete(csv);
+            Files.delete(binary);
+        }
+    }
+}
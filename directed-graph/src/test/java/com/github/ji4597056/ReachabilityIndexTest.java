@@ -0,0 +1,87 @@
+package com.github.ji4597056;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Jeffrey
+ * @since 2018/05/24 18:10
+ */
+public class ReachabilityIndexTest {
+
+    @Test
+    public void reachableDag() {
+        // 只有从小id指向大id的边,无环
+        assertIndex(randomGraph(300, 900, true, new Random(3)));
+    }
+
+    @Test
+    public void reachableCyclic() {
+        assertIndex(randomGraph(300, 450, false, new Random(5)));
+    }
+
+    @Test
+    public void descendantIds() {
+        // id不连续且逆序加入,位下标与id和DirectedGraph的顶点序号都不同
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        graph.add(new GraphNode<>(90, 90), new GraphNode<>(50, 50));
+        graph.add(new GraphNode<>(50, 50), new GraphNode<>(10, 10));
+        graph.add(new GraphNode<>(70, 70), new GraphNode<>(30, 30));
+        ReachabilityIndex index = graph.reachabilityIndex();
+        BitSet descendants = index.descendants(90);
+        int[] ids = descendants.stream().map(index::getId).sorted().toArray();
+        Assert.assertArrayEquals(ids, new int[]{10, 50, 90});
+        Assert.assertEquals(index.descendants(70).stream().map(index::getId).sum(), 100);
+    }
+
+    private DirectedGraph<Integer> randomGraph(int n, int edges, boolean acyclic, Random random) {
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int i = 0; i < n; i++) {
+            graph.add(new GraphNode<>(i, i));
+        }
+        for (int i = 0; i < edges; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            if (acyclic && from >= to) {
+                continue;
+            }
+            graph.add(new GraphNode<>(from, from), new GraphNode<>(to, to));
+        }
+        return graph;
+    }
+
+    private void assertIndex(DirectedGraph<Integer> graph) {
+        CompactDirectedGraph<Integer> compact = graph.compact();
+        ReachabilityIndex index = compact.reachabilityIndex();
+        for (int from = 0; from < compact.size(); from++) {
+            BitSet expected = bfs(compact, from);
+            Assert.assertEquals(index.descendants(compact.getId(from)), expected);
+            for (int to = 0; to < compact.size(); to++) {
+                Assert.assertEquals(index.reachable(compact.getId(from), compact.getId(to)),
+                    expected.get(to));
+            }
+        }
+    }
+
+    private BitSet bfs(CompactDirectedGraph<?> graph, int from) {
+        BitSet visited = new BitSet();
+        Deque<Integer> queue = new ArrayDeque<>();
+        visited.set(from);
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            for (int e = 0; e < graph.getOutDegree(v); e++) {
+                int w = graph.getTarget(v, e);
+                if (!visited.get(w)) {
+                    visited.set(w);
+                    queue.add(w);
+                }
+            }
+        }
+        return visited;
+    }
+}